@@ -0,0 +1,118 @@
+package com.localscopelocal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localscopelocal.model.Place;
+import com.localscopelocal.repository.PlaceRepository;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Shared fixtures for the JMH suite: recorded payloads and an in-memory repository
+ */
+final class BenchmarkFixtures {
+
+    // Deadline timer shared by the fixtures' place services, on a daemon thread so forks can exit
+    private static final ScheduledExecutorService DEADLINE_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "benchmark-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Load a recorded Google Places API response from src/jmh/resources/payloads
+     */
+    static String loadPayload(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/payloads/" + name + ".json")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown payload: " + name);
+            }
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read payload " + name, e);
+        }
+    }
+
+    /**
+     * Build a PlaceRepository whose search lookup is answered from a map keyed like
+     * PlaceSearchQuery.createCacheKey(). Only the methods PlaceService uses are supported,
+     * so the benchmark measures the service path rather than H2.
+     */
+    static PlaceRepository inMemoryRepository() {
+        Map<String, List<Place>> byKey = new ConcurrentHashMap<>();
+        return (PlaceRepository) Proxy.newProxyInstance(
+                PlaceRepository.class.getClassLoader(),
+                new Class<?>[]{PlaceRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findBySearchParameters":
+                            String key = String.format("%.6f:%.6f:%d", args[0], args[1], args[2]);
+                            return byKey.getOrDefault(key, Collections.emptyList());
+                        case "saveAll":
+                            List<Place> saved = new ArrayList<>();
+                            for (Object o : (Iterable<?>) args[0]) {
+                                Place place = (Place) o;
+                                String placeKey = String.format("%.6f:%.6f:%d", place.getQueryLongitude(),
+                                        place.getQueryLatitude(), place.getQueryRadius());
+                                byKey.computeIfAbsent(placeKey, k -> new ArrayList<>()).add(place);
+                                saved.add(place);
+                            }
+                            return saved;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryPlaceRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * PlaceService over the in-memory repository and a recorded payload, running the
+     * async pipeline stages inline
+     */
+    static PlaceService placeService(String payloadName) {
+        PlaceRepository repository = inMemoryRepository();
+        ObjectMapper objectMapper = new ObjectMapper();
+        PlaceResultCache resultCache = new PlaceResultCache(objectMapper);
+        EmptyResultCache emptyResults = new EmptyResultCache();
+        return new PlaceService(repository, recordedGooglePlacesService(payloadName),
+                new CacheStatistics(), resultCache, new PlaceRanker(),
+                emptyResults, new UpstreamErrorBackoff(),
+                new PlaceWriteBehindQueue(repository, false, 0, 0, 0),
+                new CacheCoherenceService(CacheCoherenceChannel.disabled(), resultCache, emptyResults,
+                        objectMapper, "benchmark", "", 5000, 128),
+                new PlaceFallbackService(resultCache, new PlaceRanker()),
+                Runnable::run, Runnable::run, DEADLINE_TIMER);
+    }
+
+    /**
+     * GooglePlacesService that parses a fixed recorded payload instead of calling the API
+     */
+    static GooglePlacesService recordedGooglePlacesService(String payloadName) {
+        String payload = loadPayload(payloadName);
+        return new GooglePlacesService() {
+            @Override
+            public List<Place> fetchNearbyPlaces(com.localscopelocal.model.PlaceSearchQuery query,
+                                                 RequestDeadline deadline) {
+                return parseResponse(payload, query);
+            }
+        };
+    }
+}
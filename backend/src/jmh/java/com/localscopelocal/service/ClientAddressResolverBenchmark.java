@@ -0,0 +1,89 @@
+package com.localscopelocal.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures client key resolution against header sets seen in production:
+ * direct connections, the nginx reverse proxy on the VPS, longer proxy chains and IPv6,
+ * plus raw address parsing on its own
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientAddressResolverBenchmark {
+
+    @Param({"direct", "nginx", "proxyChain", "ipv6", "ipv4Mapped"})
+    public String headerSet;
+
+    private MockHttpServletRequest request;
+    private ClientAddressResolver resolver;
+    private String forwardedFor;
+    private int firstHopEnd;
+    private final long[] parsed = new long[2];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        resolver = new ClientAddressResolver("127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12", 32, 64);
+        request = new MockHttpServletRequest("GET", "/api/places");
+        request.addHeader("Host", "localscope.example.com");
+        request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 Chrome/124.0 Safari/537.36");
+        request.addHeader("Accept", "application/json");
+
+        switch (headerSet) {
+            case "direct":
+                request.setRemoteAddr("203.0.113.24");
+                break;
+            case "nginx":
+                request.setRemoteAddr("127.0.0.1");
+                request.addHeader("X-Real-IP", "203.0.113.24");
+                request.addHeader("X-Forwarded-For", "203.0.113.24");
+                request.addHeader("X-Forwarded-Proto", "https");
+                break;
+            case "proxyChain":
+                request.setRemoteAddr("127.0.0.1");
+                request.addHeader("X-Forwarded-For", "198.51.100.7, 172.16.4.20, 10.0.0.3");
+                request.addHeader("X-Forwarded-Proto", "https");
+                break;
+            case "ipv6":
+                request.setRemoteAddr("::1");
+                request.addHeader("X-Forwarded-For", "2001:db8:85a3::8a2e:370:7334");
+                break;
+            case "ipv4Mapped":
+                request.setRemoteAddr("::ffff:203.0.113.24");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown header set: " + headerSet);
+        }
+        forwardedFor = request.getHeader("X-Forwarded-For") != null
+                ? request.getHeader("X-Forwarded-For") : request.getRemoteAddr();
+        firstHopEnd = forwardedFor.indexOf(',') < 0 ? forwardedFor.length() : forwardedFor.indexOf(',');
+    }
+
+    @Benchmark
+    public ClientKey resolve() {
+        return resolver.resolve(request);
+    }
+
+    @Benchmark
+    public long parseAddress() {
+        IpAddressUtil.parse(forwardedFor, 0, firstHopEnd, parsed);
+        return parsed[1];
+    }
+}
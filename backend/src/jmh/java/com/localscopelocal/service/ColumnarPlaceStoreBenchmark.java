@@ -0,0 +1,69 @@
+package com.localscopelocal.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures radius scans over the columnar place store, with places spread uniformly over
+ * a 100 km square around Istanbul. The block bounding boxes keep the scanned rows roughly
+ * proportional to the search area rather than to the store size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ColumnarPlaceStoreBenchmark {
+
+    private static final String[] TYPES = {"restaurant", "cafe", "bar", "park", "museum", "pharmacy"};
+
+    @Param({"1000000"})
+    public int places;
+
+    @Param({"1000", "10000"})
+    public int radius;
+
+    private ColumnarPlaceStore store;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random data = new Random(42);
+        ColumnarPlaceStore.Builder builder = new ColumnarPlaceStore.Builder();
+        for (int i = 0; i < places; i++) {
+            builder.add("ChIJ" + Long.toString(data.nextLong() & Long.MAX_VALUE, 36),
+                    40.55 + data.nextDouble() * 0.9, 28.40 + data.nextDouble() * 1.2,
+                    3.0 + data.nextInt(21) / 10.0, TYPES[data.nextInt(TYPES.length)]);
+        }
+        store = new ColumnarPlaceStore(null);
+        store.replace(builder.build());
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public List<NearbyPlace> nearest100() {
+        return store.findWithin(40.8 + random.nextDouble() * 0.4, 28.7 + random.nextDouble() * 0.6, radius, null, 100);
+    }
+
+    @Benchmark
+    public List<NearbyPlace> nearest100OfType() {
+        return store.findWithin(40.8 + random.nextDouble() * 0.4, 28.7 + random.nextDouble() * 0.6, radius,
+                Collections.singletonList("cafe"), 100);
+    }
+}
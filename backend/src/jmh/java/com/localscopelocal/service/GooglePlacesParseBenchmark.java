@@ -0,0 +1,50 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceSearchQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of recorded Nearby Search (New) responses into Place entities
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GooglePlacesParseBenchmark {
+
+    @Param({"nearby-search-20", "nearby-search-5", "nearby-search-empty"})
+    public String payloadName;
+
+    private GooglePlacesService service;
+    private PlaceSearchQuery query;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new GooglePlacesService();
+        query = new PlaceSearchQuery(28.9784, 41.0082, 1500);
+        payload = BenchmarkFixtures.loadPayload(payloadName);
+    }
+
+    @Benchmark
+    public List<Place> parseResponse() {
+        return service.parseResponse(payload, query);
+    }
+}
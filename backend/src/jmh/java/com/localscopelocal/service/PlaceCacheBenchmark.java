@@ -0,0 +1,64 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.PlaceSearchQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cache key construction and the PlaceService cache-hit path.
+ * The repository is an in-memory stand-in, so numbers exclude H2 and reflect service overhead only;
+ * with the in-memory result cache in place, hits do not reach the repository at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlaceCacheBenchmark {
+
+    @Param({"100", "10000"})
+    public int cachedQueries;
+
+    private PlaceService placeService;
+    private PlaceSearchQuery[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        placeService = BenchmarkFixtures.placeService("nearby-search-20");
+
+        queries = new PlaceSearchQuery[cachedQueries];
+        for (int i = 0; i < cachedQueries; i++) {
+            queries[i] = new PlaceSearchQuery(28.90 + i * 0.0001, 41.00 + (i % 97) * 0.0001, 1000 + (i % 5) * 500);
+            // First call misses and fills the cache from the recorded payload
+            placeService.getNearbyPlaces(queries[i]);
+        }
+    }
+
+    private PlaceSearchQuery nextQuery() {
+        return queries[(next++ & Integer.MAX_VALUE) % queries.length];
+    }
+
+    @Benchmark
+    public String createCacheKey() {
+        return nextQuery().createCacheKey();
+    }
+
+    @Benchmark
+    public PlaceSearchResult cacheHit() {
+        return placeService.getNearbyPlaces(nextQuery());
+    }
+}
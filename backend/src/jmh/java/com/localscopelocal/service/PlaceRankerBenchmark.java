@@ -0,0 +1,76 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceSearchQuery;
+import com.localscopelocal.model.PlaceSortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares top-k selection in PlaceRanker with sorting the whole result set
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlaceRankerBenchmark {
+
+    @Param({"20", "1000"})
+    public int places;
+
+    @Param({"5"})
+    public int limit;
+
+    private final PlaceRanker ranker = new PlaceRanker();
+    private List<Place> candidates;
+    private PlaceSearchQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        candidates = new ArrayList<>(places);
+        for (int i = 0; i < places; i++) {
+            Place place = new Place();
+            place.setId("place-" + i);
+            place.setLatitude(41.0 + (random.nextDouble() - 0.5) * 0.02);
+            place.setLongitude(29.0 + (random.nextDouble() - 0.5) * 0.02);
+            place.setRating(1 + random.nextInt(41) / 10.0);
+            candidates.add(place);
+        }
+        query = new PlaceSearchQuery(29.0, 41.0, 2000);
+        query.setSortOrder(PlaceSortOrder.DISTANCE);
+        query.setLimit(limit);
+    }
+
+    @Benchmark
+    public List<Place> topKByDistance() {
+        return ranker.rank(candidates, query);
+    }
+
+    @Benchmark
+    public List<Place> fullSortByDistance() {
+        double cosLat = Math.cos(Math.toRadians(41.0));
+        List<Place> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingDouble(place ->
+                GeoUtils.equirectangularMeters(41.0, 29.0, cosLat, place.getLatitude(), place.getLongitude())));
+        return sorted.subList(0, limit);
+    }
+}
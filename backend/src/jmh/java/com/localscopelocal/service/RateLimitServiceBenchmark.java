@@ -0,0 +1,91 @@
+package com.localscopelocal.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RateLimitService.isRequestAllowed with a varying number of active IP counters,
+ * uncontended and with several request threads hitting the shared maps at once.
+ * Limits are set high enough that every call takes the full "allowed" path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Limiter {
+
+        @Param({"10", "1000", "50000"})
+        public int activeIps;
+
+        RateLimitService service;
+        ClientKey[] ips;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = new RateLimitService();
+            ReflectionTestUtils.setField(service, "rateLimitEnabled", true);
+            ReflectionTestUtils.setField(service, "ipRequestLimit", Integer.MAX_VALUE / 2);
+            ReflectionTestUtils.setField(service, "ipWindowMinutes", 1);
+            ReflectionTestUtils.setField(service, "globalRequestLimit", Integer.MAX_VALUE / 2);
+            ReflectionTestUtils.setField(service, "globalWindowMinutes", 1);
+            ReflectionTestUtils.setField(service, "burstAllowance", 0);
+
+            ips = new ClientKey[activeIps];
+            for (int i = 0; i < activeIps; i++) {
+                ips[i] = ClientKey.of("10." + ((i >> 16) & 0xFF) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF));
+                service.isRequestAllowed(ips[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            next = ThreadLocalRandom.current().nextInt(1 << 20);
+        }
+
+        ClientKey nextIp(Limiter limiter) {
+            return limiter.ips[(next++ & Integer.MAX_VALUE) % limiter.ips.length];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RateLimitService.RateLimitResult singleThread(Limiter limiter, Cursor cursor) {
+        return limiter.service.isRequestAllowed(cursor.nextIp(limiter));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimitService.RateLimitResult fourThreads(Limiter limiter, Cursor cursor) {
+        return limiter.service.isRequestAllowed(cursor.nextIp(limiter));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public RateLimitService.RateLimitResult sixteenThreads(Limiter limiter, Cursor cursor) {
+        return limiter.service.isRequestAllowed(cursor.nextIp(limiter));
+    }
+}
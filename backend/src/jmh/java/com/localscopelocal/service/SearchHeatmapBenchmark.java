@@ -0,0 +1,66 @@
+package com.localscopelocal.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the request-path cost of SearchHeatmap.record, uncontended and with several request
+ * threads claiming ring buffer slots at once. Nothing drains the buffer, so it keeps wrapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchHeatmapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Heatmap {
+        SearchHeatmap heatmap;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            heatmap = new SearchHeatmap(1 << 16);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Location {
+        double latitude;
+        double longitude;
+        boolean hit;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            latitude = 41.0 + ThreadLocalRandom.current().nextDouble(0.1);
+            longitude = 29.0 + ThreadLocalRandom.current().nextDouble(0.1);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread(Heatmap heatmap, Location location) {
+        location.hit = !location.hit;
+        heatmap.heatmap.record(location.latitude, location.longitude, location.hit);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void sixteenThreads(Heatmap heatmap, Location location) {
+        location.hit = !location.hit;
+        heatmap.heatmap.record(location.latitude, location.longitude, location.hit);
+    }
+}
@@ -0,0 +1,97 @@
+package com.localscopelocal.loadtest;
+
+import java.util.Random;
+
+/**
+ * Latency model for the Google Places stub, parsed from a compact spec:
+ * <ul>
+ *   <li>{@code none} - respond immediately</li>
+ *   <li>{@code fixed:80} - always 80 ms</li>
+ *   <li>{@code uniform:20:200} - uniformly between 20 and 200 ms</li>
+ *   <li>{@code lognormal:80:0.5} - log-normal with an 80 ms median and sigma 0.5</li>
+ *   <li>{@code bimodal:60:1500:0.02} - 60 ms normally, 1500 ms for 2% of calls</li>
+ * </ul>
+ */
+public abstract class LatencyDistribution {
+
+    /**
+     * Draw the next latency in milliseconds
+     */
+    public abstract long nextMillis(Random random);
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase().split(":");
+        try {
+            switch (parts[0]) {
+                case "none":
+                    return fixed(0, spec);
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]), spec);
+                case "uniform": {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    return new LatencyDistribution() {
+                        @Override
+                        public long nextMillis(Random random) {
+                            return min + (long) (random.nextDouble() * (max - min));
+                        }
+
+                        @Override
+                        public String toString() {
+                            return spec;
+                        }
+                    };
+                }
+                case "lognormal": {
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = Double.parseDouble(parts[2]);
+                    return new LatencyDistribution() {
+                        @Override
+                        public long nextMillis(Random random) {
+                            return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                        }
+
+                        @Override
+                        public String toString() {
+                            return spec;
+                        }
+                    };
+                }
+                case "bimodal": {
+                    long fast = Long.parseLong(parts[1]);
+                    long slow = Long.parseLong(parts[2]);
+                    double slowFraction = Double.parseDouble(parts[3]);
+                    return new LatencyDistribution() {
+                        @Override
+                        public long nextMillis(Random random) {
+                            return random.nextDouble() < slowFraction ? slow : fast;
+                        }
+
+                        @Override
+                        public String toString() {
+                            return spec;
+                        }
+                    };
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed latency distribution: " + spec, e);
+        }
+    }
+
+    private static LatencyDistribution fixed(long millis, String spec) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextMillis(Random random) {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return spec;
+            }
+        };
+    }
+}
@@ -0,0 +1,205 @@
+package com.localscopelocal.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives GET /api/places with a fixed number of worker threads for a fixed duration.
+ *
+ * Without a target rate each worker sends requests back to back (closed loop). With a target
+ * rate requests are paced on a fixed schedule and latency is measured from the intended start
+ * time, so queueing delay inside the service is not hidden by coordinated omission.
+ */
+public class LoadGenerator {
+
+    private final String baseUrl;
+    private final Scenario scenario;
+    private final int threads;
+    private final double targetRate;
+    private final int timeoutMillis;
+
+    /**
+     * @param baseUrl Base URL of the service, e.g. http://127.0.0.1:8070
+     * @param scenario Request mix to generate
+     * @param threads Number of worker threads
+     * @param targetRate Total requests per second to pace at, or 0 for closed-loop
+     * @param timeoutMillis Connect and read timeout per request
+     */
+    public LoadGenerator(String baseUrl, Scenario scenario, int threads, double targetRate, int timeoutMillis) {
+        this.baseUrl = baseUrl;
+        this.scenario = scenario;
+        this.threads = threads;
+        this.targetRate = targetRate;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Run the scenario for the given duration and collect per-request results
+     */
+    public Samples run(long durationMillis) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long intervalNanos = targetRate > 0 ? (long) (threads * 1_000_000_000L / targetRate) : 0;
+
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(start + (intervalNanos * i) / Math.max(1, threads), end, intervalNanos);
+            worker.setName("load-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        Samples samples = new Samples();
+        for (Worker worker : workers) {
+            worker.join();
+            samples.merge(worker.samples);
+        }
+        samples.elapsedNanos = System.nanoTime() - start;
+        return samples;
+    }
+
+    private final class Worker extends Thread {
+        private final long end;
+        private final long intervalNanos;
+        private long nextStart;
+        private final Samples samples = new Samples();
+
+        Worker(long firstStart, long end, long intervalNanos) {
+            this.nextStart = firstStart;
+            this.end = end;
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (true) {
+                long intendedStart;
+                if (intervalNanos > 0) {
+                    intendedStart = nextStart;
+                    nextStart += intervalNanos;
+                    long wait = intendedStart - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intendedStart = System.nanoTime();
+                }
+                if (intendedStart >= end) {
+                    return;
+                }
+
+                int status = execute(scenario.next(random));
+                samples.record(status, System.nanoTime() - intendedStart);
+            }
+        }
+    }
+
+    private int execute(Scenario.SearchRequest request) {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(String.format(Locale.ROOT, "%s/api/places?longitude=%.6f&latitude=%.6f&radius=%d",
+                    baseUrl, request.longitude, request.latitude, request.radius));
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty("X-Forwarded-For", request.clientIp);
+            connection.setRequestProperty("Accept", "application/json");
+
+            int status = connection.getResponseCode();
+            // Drain the body so the connection goes back to the keep-alive pool
+            InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (body != null) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0) {
+                    // discard
+                }
+                body.close();
+            }
+            return status;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Latencies and status codes collected by one worker, or merged across all workers
+     */
+    public static final class Samples {
+        private long[] latencies = new long[1 << 14];
+        private int size;
+        private final long[] statusCounts = new long[600];
+        long elapsedNanos;
+
+        void record(int status, long latencyNanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            statusCounts[status < statusCounts.length ? status : 0]++;
+        }
+
+        void merge(Samples other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, size + other.size);
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            for (int i = 0; i < statusCounts.length; i++) {
+                statusCounts[i] += other.statusCounts[i];
+            }
+        }
+
+        public int getCount() {
+            return size;
+        }
+
+        public long getStatusCount(int status) {
+            return statusCounts[status];
+        }
+
+        /**
+         * Count of requests that failed without an HTTP status (timeouts, refused connections)
+         */
+        public long getTransportErrors() {
+            return statusCounts[0];
+        }
+
+        public long[] getStatusCounts() {
+            return statusCounts;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Latency at the given percentile (0..100) in nanoseconds; sorts the samples in place
+         */
+        public long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            Arrays.sort(latencies, 0, size);
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return latencies[Math.max(0, Math.min(size - 1, index))];
+        }
+
+        public long max() {
+            return percentile(100);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.localscopelocal.loadtest;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.localscopelocal.LocalScopeLocalApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * End-to-end load test: starts a local Places API stub, boots the application against it
+ * (or targets an already running instance) and drives a scenario through GET /api/places.
+ *
+ * Options (all optional):
+ * <pre>
+ *   --scenario=cold-cache|hot-keys|uniform-random-city|abusive-ips   (default hot-keys)
+ *   --threads=32              worker threads
+ *   --duration=30             measured seconds
+ *   --warmup=5                warmup seconds, excluded from the report
+ *   --rate=0                  target requests/second, 0 for closed loop
+ *   --timeout-ms=10000        per-request timeout
+ *   --stub-latency=lognormal:80:0.5   see LatencyDistribution
+ *   --stub-error-rate=0       fraction of upstream calls answered with 5xx
+ *   --stub-results=20         places per upstream response
+ *   --stub-extra-bytes=0      extra text per place, to model larger payloads
+ *   --rate-limit=true|false   (default: enabled only for abusive-ips)
+ *   --target=http://host:port drive an external instance (it must point google.places.api.url at
+ *                             the stub URL printed on startup for upstream counts to be meaningful)
+ *   --app-log-level=WARN      log level of the embedded application
+ *   --app.&lt;property&gt;=value   any application property for the embedded instance,
+ *                             e.g. --app.places.async.enabled=true
+ *   --report-dir=target       where loadtest-&lt;scenario&gt;.json is written
+ * </pre>
+ */
+public class LoadTestHarness {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        Scenario scenario = Scenario.fromOption(options.getOrDefault("scenario", "hot-keys"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        long durationMillis = Long.parseLong(options.getOrDefault("duration", "30")) * 1000;
+        long warmupMillis = Long.parseLong(options.getOrDefault("warmup", "5")) * 1000;
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        int timeoutMillis = Integer.parseInt(options.getOrDefault("timeout-ms", "10000"));
+        boolean rateLimit = Boolean.parseBoolean(
+                options.getOrDefault("rate-limit", String.valueOf(scenario == Scenario.ABUSIVE_IPS)));
+
+        LatencyDistribution latency = LatencyDistribution.parse(options.getOrDefault("stub-latency", "lognormal:80:0.5"));
+        double errorRate = Double.parseDouble(options.getOrDefault("stub-error-rate", "0"));
+        int results = Integer.parseInt(options.getOrDefault("stub-results", "20"));
+        int extraBytes = Integer.parseInt(options.getOrDefault("stub-extra-bytes", "0"));
+
+        try (PlacesApiStub stub = new PlacesApiStub(latency, errorRate, results, extraBytes).start(0)) {
+            System.out.println("Places API stub listening on " + stub.getSearchNearbyUrl());
+
+            ConfigurableApplicationContext context = null;
+            String baseUrl = options.get("target");
+            if (baseUrl == null) {
+                context = startApplication(stub, rateLimit, options.getOrDefault("app-log-level", "WARN"), options);
+                baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            }
+
+            try {
+                System.out.printf("Running %s against %s with %d threads (%s)%n", scenario, baseUrl, threads,
+                        rate > 0 ? rate + " req/s" : "closed loop");
+                if (warmupMillis > 0) {
+                    new LoadGenerator(baseUrl, scenario, threads, rate, timeoutMillis).run(warmupMillis);
+                }
+                stub.resetCounters();
+                long[] cacheBefore = fetchCacheTotals(baseUrl, timeoutMillis);
+
+                LoadGenerator.Samples samples =
+                        new LoadGenerator(baseUrl, scenario, threads, rate, timeoutMillis).run(durationMillis);
+
+                long[] cacheAfter = fetchCacheTotals(baseUrl, timeoutMillis);
+                long[] cache = {cacheAfter[0] - cacheBefore[0], cacheAfter[1] - cacheBefore[1]};
+                JsonObject report = buildReport(scenario, threads, rate, latency, errorRate, rateLimit, samples, stub,
+                        cache);
+                System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(report));
+                writeReport(options.getOrDefault("report-dir", "target"), scenario, report);
+            } finally {
+                if (context != null) {
+                    context.close();
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(PlacesApiStub stub, boolean rateLimit, String logLevel,
+                                                                   Map<String, String> options) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("google.places.api.url", stub.getSearchNearbyUrl());
+        properties.put("google.places.api.key", "load-test");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("rate.limit.enabled", String.valueOf(rateLimit));
+        properties.put("logging.level.root", logLevel);
+        properties.put("logging.level.com.localscopelocal", logLevel);
+        properties.put("server.tomcat.threads.max", "200");
+        options.forEach((name, value) -> {
+            if (name.startsWith("app.")) {
+                properties.put(name.substring(4), value);
+            }
+        });
+
+        return new SpringApplicationBuilder(LocalScopeLocalApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    private static JsonObject buildReport(Scenario scenario, int threads, double rate, LatencyDistribution latency,
+                                          double errorRate, boolean rateLimit,
+                                          LoadGenerator.Samples samples, PlacesApiStub stub, long[] cache) {
+        double seconds = samples.getElapsedNanos() / 1e9;
+        long upstreamCalls = stub.getCallCount();
+
+        JsonObject config = new JsonObject();
+        config.addProperty("scenario", scenario.name());
+        config.addProperty("threads", threads);
+        config.addProperty("targetRate", rate);
+        config.addProperty("stubLatency", latency.toString());
+        config.addProperty("stubErrorRate", errorRate);
+        config.addProperty("rateLimitEnabled", rateLimit);
+
+        JsonObject latencyMs = new JsonObject();
+        latencyMs.addProperty("p50", samples.percentile(50) / 1e6);
+        latencyMs.addProperty("p90", samples.percentile(90) / 1e6);
+        latencyMs.addProperty("p99", samples.percentile(99) / 1e6);
+        latencyMs.addProperty("p999", samples.percentile(99.9) / 1e6);
+        latencyMs.addProperty("max", samples.max() / 1e6);
+
+        JsonObject statuses = new JsonObject();
+        long[] statusCounts = samples.getStatusCounts();
+        for (int status = 1; status < statusCounts.length; status++) {
+            if (statusCounts[status] > 0) {
+                statuses.addProperty(String.valueOf(status), statusCounts[status]);
+            }
+        }
+        statuses.addProperty("transportErrors", samples.getTransportErrors());
+
+        JsonObject upstream = new JsonObject();
+        upstream.addProperty("calls", upstreamCalls);
+        upstream.addProperty("errors", stub.getErrorCount());
+        upstream.addProperty("callsPerSecond", upstreamCalls / seconds);
+
+        JsonObject report = new JsonObject();
+        report.addProperty("timestamp", System.currentTimeMillis());
+        report.add("config", config);
+        report.addProperty("requests", samples.getCount());
+        report.addProperty("durationSeconds", seconds);
+        report.addProperty("requestsPerSecond", samples.getCount() / seconds);
+        report.add("latencyMs", latencyMs);
+        report.add("statusCounts", statuses);
+        report.add("upstream", upstream);
+        // As counted by the application; upstream calls include retries, hedges and failures
+        long lookups = cache[0] + cache[1];
+        report.addProperty("cacheHits", cache[0]);
+        report.addProperty("cacheMisses", cache[1]);
+        report.addProperty("cacheHitRate", lookups == 0 ? 0.0 : (double) cache[0] / lookups);
+        return report;
+    }
+
+    /**
+     * Read the application's cache hit and miss totals from /api/admin/cache/stats
+     *
+     * @return Hits and misses since startup
+     */
+    private static long[] fetchCacheTotals(String baseUrl, int timeoutMillis) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/api/admin/cache/stats").openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        try (InputStream in = connection.getInputStream()) {
+            JsonObject totals = JsonParser.parseReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                    .getAsJsonObject().getAsJsonObject("hitRatio").getAsJsonObject("sinceStartup");
+            return new long[] {totals.get("hits").getAsLong(), totals.get("misses").getAsLong()};
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void writeReport(String directory, Scenario scenario, JsonObject report) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        Path file = dir.resolve("loadtest-" + scenario.name().toLowerCase().replace('_', '-') + ".json");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+        }
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
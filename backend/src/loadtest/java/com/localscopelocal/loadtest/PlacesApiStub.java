@@ -0,0 +1,203 @@
+package com.localscopelocal.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Places API Nearby Search (New) endpoint.
+ * Point {@code google.places.api.url} at {@link #getSearchNearbyUrl()} to exercise the full stack
+ * without calling Google. Latency, error rate and payload size are configurable, and every call
+ * is counted so the harness can report upstream call and error counts.
+ *
+ * Results are generated deterministically from the requested circle, so the same query
+ * always yields the same places.
+ */
+public class PlacesApiStub implements AutoCloseable {
+
+    private static final String SEARCH_NEARBY_PATH = "/v1/places:searchNearby";
+    private static final String[] TYPES = {
+            "restaurant", "cafe", "bar", "bakery", "park", "museum",
+            "pharmacy", "supermarket", "book_store", "gym", "hotel", "bank"
+    };
+
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final int resultCount;
+    private final int extraBytesPerPlace;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param latency Latency distribution applied to every call
+     * @param errorRate Fraction of calls (0..1) answered with a 5xx status
+     * @param resultCount Places returned per successful call (the real API caps this at 20)
+     * @param extraBytesPerPlace Extra text added to each place to model richer field masks
+     */
+    public PlacesApiStub(LatencyDistribution latency, double errorRate, int resultCount, int extraBytesPerPlace) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.resultCount = resultCount;
+        this.extraBytesPerPlace = extraBytesPerPlace;
+    }
+
+    /**
+     * Start serving on the given port (0 picks a free port)
+     */
+    public PlacesApiStub start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        // Latency is simulated by sleeping, so in-flight calls each need their own thread
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "places-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(SEARCH_NEARBY_PATH, this::handleSearchNearby);
+        server.start();
+        return this;
+    }
+
+    public String getSearchNearbyUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + SEARCH_NEARBY_PATH;
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public void resetCounters() {
+        calls.set(0);
+        errors.set(0);
+    }
+
+    private void handleSearchNearby(HttpExchange exchange) throws IOException {
+        try {
+            calls.incrementAndGet();
+            JsonObject request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = JsonParser.parseReader(new InputStreamReader(in, StandardCharsets.UTF_8)).getAsJsonObject();
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latency.nextMillis(random);
+            if (delay > 0) {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                int status = random.nextBoolean() ? 500 : 503;
+                send(exchange, status, "{\"error\":{\"code\":" + status + ",\"status\":\"UNAVAILABLE\"}}");
+                return;
+            }
+
+            send(exchange, 200, buildResponse(request).toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "{}");
+        } catch (RuntimeException e) {
+            JsonObject error = new JsonObject();
+            error.addProperty("code", 400);
+            error.addProperty("message", String.valueOf(e.getMessage()));
+            JsonObject body = new JsonObject();
+            body.add("error", error);
+            send(exchange, 400, body.toString());
+        }
+    }
+
+    private JsonObject buildResponse(JsonObject request) {
+        JsonObject circle = request.getAsJsonObject("locationRestriction").getAsJsonObject("circle");
+        JsonObject center = circle.getAsJsonObject("center");
+        double latitude = center.get("latitude").getAsDouble();
+        double longitude = center.get("longitude").getAsDouble();
+        double radius = circle.get("radius").getAsDouble();
+
+        int count = resultCount;
+        if (request.has("maxResultCount")) {
+            count = Math.min(count, request.get("maxResultCount").getAsInt());
+        }
+
+        Random random = new Random(Double.hashCode(latitude) * 31L + Double.hashCode(longitude) * 17L + (long) radius);
+        double radiusDegrees = radius / 111_320.0;
+        StringBuilder padding = new StringBuilder(extraBytesPerPlace);
+        for (int i = 0; i < extraBytesPerPlace; i++) {
+            padding.append((char) ('a' + (i % 26)));
+        }
+
+        JsonArray places = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            JsonObject place = new JsonObject();
+            place.addProperty("id", "stub_" + Long.toHexString(random.nextLong()));
+            JsonObject displayName = new JsonObject();
+            displayName.addProperty("text", "Stub " + type + " " + i);
+            displayName.addProperty("languageCode", "en");
+            place.add("displayName", displayName);
+            place.addProperty("formattedAddress", (i + 1) + " Stub Street, Load Test City");
+            place.addProperty("primaryType", type);
+            place.addProperty("rating", Math.round((3.0 + random.nextDouble() * 2.0) * 10) / 10.0);
+            if (random.nextBoolean()) {
+                place.addProperty("websiteUri", "https://example.com/" + type + "/" + i);
+            }
+            JsonObject location = new JsonObject();
+            location.addProperty("latitude", latitude + (random.nextDouble() * 2 - 1) * radiusDegrees * 0.7);
+            location.addProperty("longitude", longitude + (random.nextDouble() * 2 - 1) * radiusDegrees * 0.7);
+            place.add("location", location);
+            if (extraBytesPerPlace > 0) {
+                JsonObject summary = new JsonObject();
+                summary.addProperty("text", padding.toString());
+                place.add("editorialSummary", summary);
+            }
+            places.add(place);
+        }
+
+        JsonObject response = new JsonObject();
+        if (places.size() > 0) {
+            response.add("places", places);
+        }
+        return response;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
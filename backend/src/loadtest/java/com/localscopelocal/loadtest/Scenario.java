@@ -0,0 +1,109 @@
+package com.localscopelocal.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request mixes for the load generator. Each scenario decides which query and which
+ * client IP the next request uses.
+ */
+public enum Scenario {
+
+    /**
+     * Every request uses a query that has never been seen, so every request misses the cache
+     */
+    COLD_CACHE {
+        private final AtomicLong sequence = new AtomicLong();
+
+        @Override
+        SearchRequest next(ThreadLocalRandom random) {
+            long n = sequence.incrementAndGet();
+            double longitude = CITY_MIN_LON + (n % 10_000) * 0.00001;
+            double latitude = CITY_MIN_LAT + (n / 10_000) * 0.00001;
+            return new SearchRequest(longitude, latitude, 1000, normalClient(random));
+        }
+    },
+
+    /**
+     * A handful of popular queries, as when a city centre dominates traffic
+     */
+    HOT_KEYS {
+        @Override
+        SearchRequest next(ThreadLocalRandom random) {
+            return hotKey(random, normalClient(random));
+        }
+    },
+
+    /**
+     * Uniformly random points across the city on a ~100 m grid with a few common radii,
+     * giving a cache that warms up gradually
+     */
+    UNIFORM_RANDOM_CITY {
+        @Override
+        SearchRequest next(ThreadLocalRandom random) {
+            double longitude = round3(CITY_MIN_LON + random.nextDouble() * (CITY_MAX_LON - CITY_MIN_LON));
+            double latitude = round3(CITY_MIN_LAT + random.nextDouble() * (CITY_MAX_LAT - CITY_MIN_LAT));
+            return new SearchRequest(longitude, latitude, RADII[random.nextInt(RADII.length)], normalClient(random));
+        }
+    },
+
+    /**
+     * Most traffic comes from a few abusive IPs hammering hot keys, mixed with normal users.
+     * Useful with rate limiting enabled to see how well legitimate users are protected.
+     */
+    ABUSIVE_IPS {
+        @Override
+        SearchRequest next(ThreadLocalRandom random) {
+            String client = random.nextDouble() < 0.9
+                    ? "198.51.100." + (1 + random.nextInt(3))
+                    : normalClient(random);
+            return hotKey(random, client);
+        }
+    };
+
+    // Bounding box around central Istanbul
+    private static final double CITY_MIN_LON = 28.85;
+    private static final double CITY_MAX_LON = 29.10;
+    private static final double CITY_MIN_LAT = 40.98;
+    private static final double CITY_MAX_LAT = 41.10;
+    private static final int[] RADII = {500, 1000, 2000};
+    private static final int HOT_KEY_COUNT = 10;
+    private static final int NORMAL_CLIENTS = 5000;
+
+    abstract SearchRequest next(ThreadLocalRandom random);
+
+    public static Scenario fromOption(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    private static SearchRequest hotKey(ThreadLocalRandom random, String client) {
+        int key = random.nextInt(HOT_KEY_COUNT);
+        return new SearchRequest(28.9784 + key * 0.01, 41.0082, 1000, client);
+    }
+
+    private static String normalClient(ThreadLocalRandom random) {
+        int n = random.nextInt(NORMAL_CLIENTS);
+        return "203.0." + (n >> 8) + "." + (n & 0xFF);
+    }
+
+    private static double round3(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /**
+     * One search request: the query parameters and the client it appears to come from
+     */
+    static final class SearchRequest {
+        final double longitude;
+        final double latitude;
+        final int radius;
+        final String clientIp;
+
+        SearchRequest(double longitude, double latitude, int radius, String clientIp) {
+            this.longitude = longitude;
+            this.latitude = latitude;
+            this.radius = radius;
+            this.clientIp = clientIp;
+        }
+    }
+}
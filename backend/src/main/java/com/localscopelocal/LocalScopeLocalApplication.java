@@ -2,6 +2,8 @@ package com.localscopelocal;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
@@ -11,7 +13,18 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling
 public class LocalScopeLocalApplication {
 
+    // Startup steps kept for the admin startup timeline; beans created lazily after startup count too
+    private static final int STARTUP_STEP_CAPACITY = 10000;
+
     public static void main(String[] args) {
-        SpringApplication.run(LocalScopeLocalApplication.class, args);
+        SpringApplication application = new SpringApplication(LocalScopeLocalApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+        ConfigurableApplicationContext context = application.run(args);
+
+        // Training run for a class-data-sharing archive: stop once started, so the JVM
+        // (-XX:ArchiveClassesAtExit) dumps every class loaded during startup
+        if (context.getEnvironment().getProperty("places.startup.cds-training-run", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
-} 
\ No newline at end of file
+}
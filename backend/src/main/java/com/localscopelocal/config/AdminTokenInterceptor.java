@@ -0,0 +1,61 @@
+package com.localscopelocal.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards the admin API's changing endpoints (anything but GET, HEAD and OPTIONS): they are refused
+ * unless places.admin.token is set and the request carries it in the X-Admin-Token header, so
+ * neither an open port nor a page in someone's browser can wipe the cache or start an export.
+ */
+class AdminTokenInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminTokenInterceptor.class);
+
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    /**
+     * @param token The expected token; empty disables the changing endpoints
+     */
+    AdminTokenInterceptor(String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return true;
+        }
+        if (token.length == 0) {
+            return refuse(request, response, "Admin changes are disabled. Set places.admin.token to enable them.");
+        }
+        String given = request.getHeader(TOKEN_HEADER);
+        // Constant-time comparison, so the token cannot be guessed from response times
+        if (given == null || !MessageDigest.isEqual(token, given.getBytes(StandardCharsets.UTF_8))) {
+            return refuse(request, response, "Missing or wrong " + TOKEN_HEADER + " header.");
+        }
+        return true;
+    }
+
+    private static boolean refuse(HttpServletRequest request, HttpServletResponse response, String message)
+            throws IOException {
+        log.warn("Refused admin request {} {} from {}", request.getMethod(), request.getRequestURI(),
+                request.getRemoteAddr());
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+        return false;
+    }
+}
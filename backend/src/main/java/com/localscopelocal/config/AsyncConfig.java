@@ -0,0 +1,106 @@
+package com.localscopelocal.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the asynchronous search pipeline (places.async.enabled=true).
+ *
+ * Cache lookups/persistence and upstream Google calls run on separate bounded executors, so a
+ * slow upstream can only exhaust its own pool and never holds servlet threads. When
+ * places.async.virtual-threads=true and the JVM supports it (Java 21+), tasks run on virtual
+ * threads instead, capped by a maximum number of tasks in flight. A single timer thread starts the
+ * fallback answers of searches whose deadline passes.
+ */
+@Configuration
+public class AsyncConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    @Value("${places.async.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${places.async.virtual.max-in-flight:10000}")
+    private int virtualMaxInFlight;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService placesDbExecutor(
+            @Value("${places.async.db.pool-size:8}") int poolSize,
+            @Value("${places.async.db.queue-capacity:500}") int queueCapacity) {
+        return createExecutor("places-db", poolSize, queueCapacity);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService placesUpstreamExecutor(
+            @Value("${places.async.upstream.pool-size:32}") int poolSize,
+            @Value("${places.async.upstream.queue-capacity:1000}") int queueCapacity) {
+        return createExecutor("places-upstream", poolSize, queueCapacity);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService placesDeadlineTimer() {
+        return Executors.newSingleThreadScheduledExecutor(namedThreadFactory("places-deadline"));
+    }
+
+    private ExecutorService createExecutor(String name, int poolSize, int queueCapacity) {
+        if (virtualThreads) {
+            ExecutorService virtual = newVirtualThreadExecutor(name);
+            if (virtual != null) {
+                log.info("Executor {} uses virtual threads (max {} in flight)", name, virtualMaxInFlight);
+                return new BoundedExecutor(virtual, virtualMaxInFlight);
+            }
+            log.warn("Virtual threads requested but not supported by Java {}; using a platform thread pool for {}",
+                    System.getProperty("java.version"), name);
+        }
+
+        // Fixed size pool with a bounded queue; AbortPolicy rejects work once both are full
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        log.info("Executor {} uses {} platform threads with a queue of {}", name, poolSize, queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Create a thread-per-task executor on named virtual threads via reflection,
+     * since the application is still compiled for Java 8
+     *
+     * @return The executor, or null if the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newExecutor = java.util.concurrent.Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
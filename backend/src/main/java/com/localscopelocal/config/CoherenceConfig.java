@@ -0,0 +1,34 @@
+package com.localscopelocal.config;
+
+import com.localscopelocal.service.CacheCoherenceChannel;
+import com.localscopelocal.service.InProcessCoherenceChannel;
+import com.localscopelocal.service.UdpCoherenceChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Channel carrying cache announcements between backend nodes (places.coherence.channel):
+ * none for a single node, in-process for nodes sharing a JVM, or udp.
+ */
+@Configuration
+public class CoherenceConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheCoherenceChannel cacheCoherenceChannel(
+            @Value("${places.coherence.channel:none}") String channel,
+            @Value("${places.coherence.udp.bind-address:127.0.0.1}") String bindAddress,
+            @Value("${places.coherence.udp.port:7400}") int port,
+            @Value("${places.coherence.udp.peers:}") String peers) {
+        switch (channel) {
+            case "none":
+                return CacheCoherenceChannel.disabled();
+            case "in-process":
+                return new InProcessCoherenceChannel();
+            case "udp":
+                return new UdpCoherenceChannel(bindAddress, port, peers);
+            default:
+                throw new IllegalArgumentException("Unknown places.coherence.channel: " + channel);
+        }
+    }
+}
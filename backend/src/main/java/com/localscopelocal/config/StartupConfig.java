@@ -0,0 +1,39 @@
+package com.localscopelocal.config;
+
+import com.localscopelocal.service.PlaceSnapshotService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Startup tuning used by the fast-startup profile (application-fast-startup.properties).
+ *
+ * With spring.main.lazy-initialization=true, beans are created on first use. A few are kept eager:
+ * the JPA entity manager factory, so that with places.startup.background-jpa-bootstrap=true Hibernate
+ * builds its metamodel and creates the schema and indexes on a background thread while the rest of
+ * the application starts, and the snapshot service when a snapshot must be imported before serving.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter startupTaskLazyInitializationExcludeFilter(Environment environment) {
+        boolean backgroundJpa = environment.getProperty("places.startup.background-jpa-bootstrap", Boolean.class, false);
+        boolean importSnapshot = !environment.getProperty("places.snapshot.import-on-startup", "").isEmpty();
+        return (beanName, definition, type) ->
+                (backgroundJpa && "entityManagerFactory".equals(beanName))
+                        || (importSnapshot && type != null && PlaceSnapshotService.class.isAssignableFrom(type));
+    }
+
+    @Bean
+    @ConditionalOnProperty("places.startup.background-jpa-bootstrap")
+    public EntityManagerFactoryBuilderCustomizer backgroundJpaBootstrapCustomizer() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("jpa-bootstrap-");
+        executor.setDaemon(true);
+        return builder -> builder.setBootstrapExecutor(executor);
+    }
+}
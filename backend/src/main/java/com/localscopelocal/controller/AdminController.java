@@ -1,14 +1,32 @@
 package com.localscopelocal.controller;
 
+import com.localscopelocal.model.PlaceSearchQuery;
+import com.localscopelocal.service.CacheCoherenceService;
+import com.localscopelocal.service.CacheStatistics;
+import com.localscopelocal.service.ColumnarPlaceStore;
+import com.localscopelocal.service.EmptyResultCache;
+import com.localscopelocal.service.FairAdmissionQueue;
+import com.localscopelocal.service.GooglePlacesService;
+import com.localscopelocal.service.PlaceCacheAdminService;
+import com.localscopelocal.service.PlaceFallbackService;
+import com.localscopelocal.service.PlaceLookupService;
+import com.localscopelocal.service.PlaceSnapshotService;
+import com.localscopelocal.service.PlaceWriteBehindQueue;
 import com.localscopelocal.service.RateLimitService;
+import com.localscopelocal.service.SearchHeatmap;
+import com.localscopelocal.service.StartupTimelineService;
+import com.localscopelocal.service.UpstreamErrorBackoff;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,10 +40,45 @@ public class AdminController {
     private static final Logger log = LoggerFactory.getLogger(AdminController.class);
 
     private final RateLimitService rateLimitService;
+    private final PlaceCacheAdminService placeCacheAdminService;
+    private final CacheStatistics cacheStatistics;
+    private final EmptyResultCache emptyResultCache;
+    private final UpstreamErrorBackoff upstreamErrorBackoff;
+    private final PlaceWriteBehindQueue placeWriteBehindQueue;
+    private final PlaceSnapshotService placeSnapshotService;
+    private final ColumnarPlaceStore columnarPlaceStore;
+    private final FairAdmissionQueue admissionQueue;
+    private final StartupTimelineService startupTimelineService;
+    private final GooglePlacesService googlePlacesService;
+    private final SearchHeatmap searchHeatmap;
+    private final PlaceLookupService placeLookupService;
+    private final CacheCoherenceService cacheCoherenceService;
+    private final PlaceFallbackService placeFallbackService;
 
     @Autowired
-    public AdminController(RateLimitService rateLimitService) {
+    public AdminController(RateLimitService rateLimitService, PlaceCacheAdminService placeCacheAdminService,
+                           CacheStatistics cacheStatistics, EmptyResultCache emptyResultCache,
+                           UpstreamErrorBackoff upstreamErrorBackoff, PlaceWriteBehindQueue placeWriteBehindQueue,
+                           PlaceSnapshotService placeSnapshotService, ColumnarPlaceStore columnarPlaceStore,
+                           FairAdmissionQueue admissionQueue, StartupTimelineService startupTimelineService,
+                           GooglePlacesService googlePlacesService, SearchHeatmap searchHeatmap,
+                           PlaceLookupService placeLookupService, CacheCoherenceService cacheCoherenceService,
+                           PlaceFallbackService placeFallbackService) {
         this.rateLimitService = rateLimitService;
+        this.placeCacheAdminService = placeCacheAdminService;
+        this.cacheStatistics = cacheStatistics;
+        this.emptyResultCache = emptyResultCache;
+        this.upstreamErrorBackoff = upstreamErrorBackoff;
+        this.placeWriteBehindQueue = placeWriteBehindQueue;
+        this.placeSnapshotService = placeSnapshotService;
+        this.columnarPlaceStore = columnarPlaceStore;
+        this.admissionQueue = admissionQueue;
+        this.startupTimelineService = startupTimelineService;
+        this.googlePlacesService = googlePlacesService;
+        this.searchHeatmap = searchHeatmap;
+        this.placeLookupService = placeLookupService;
+        this.cacheCoherenceService = cacheCoherenceService;
+        this.placeFallbackService = placeFallbackService;
     }
 
     /**
@@ -50,6 +103,7 @@ public class AdminController {
                 "activeIpAddresses", status.getActiveIpAddresses(),
                 "ipLimit", status.getIpLimit()
         ));
+        stats.put("admission", admissionQueue.getMetrics());
         stats.put("timestamp", System.currentTimeMillis());
         
         return ResponseEntity.ok(stats);
@@ -101,4 +155,235 @@ public class AdminController {
         
         return ResponseEntity.ok(info);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get the query-density heatmap: the busiest geohash cells with their cache hits and misses
+     *
+     * @param precision Geohash length of the cells, up to places.heatmap.precision; shorter merges cells
+     * @param limit Maximum number of cells to return
+     * @return Cells by number of searches, and recording statistics
+     */
+    @GetMapping("/heatmap")
+    public ResponseEntity<Map<String, Object>> getHeatmap(@RequestParam(required = false) Integer precision,
+                                                          @RequestParam(defaultValue = "100") int limit) {
+        searchHeatmap.drain();
+        int cellPrecision = precision != null ? precision : searchHeatmap.getPrecision();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cells", searchHeatmap.getCells(cellPrecision, Math.max(1, Math.min(limit, 10000))));
+        response.put("stats", searchHeatmap.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Clear the query-density heatmap, e.g. to start a new measurement period
+     */
+    @DeleteMapping("/heatmap")
+    public ResponseEntity<Map<String, Object>> resetHeatmap() {
+        log.info("Resetting query-density heatmap");
+        searchHeatmap.reset();
+        return ResponseEntity.ok(searchHeatmap.getStats());
+    }
+
+    /**
+     * Get the startup timeline: time per startup phase and the slowest bean instantiations
+     *
+     * @param limit Maximum number of beans to list
+     * @return Startup phases, slowest beans and time to ready
+     */
+    @GetMapping("/startup")
+    public ResponseEntity<Map<String, Object>> getStartupTimeline(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(startupTimelineService.getTimeline(Math.max(1, Math.min(limit, 1000))));
+    }
+
+    /**
+     * Get place cache statistics: size, hit ratio over sliding windows and age distribution
+     *
+     * @return Cache statistics
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        log.info("Cache statistics requested");
+
+        Map<String, Object> hitRatio = new LinkedHashMap<>();
+        for (CacheStatistics.WindowStats window : cacheStatistics.getHitRatios()) {
+            hitRatio.put(window.getWindowSeconds() / 60 + "m", Map.of(
+                    "hits", window.getHits(),
+                    "misses", window.getMisses(),
+                    "hitRatio", window.getHitRatio()
+            ));
+        }
+        hitRatio.put("sinceStartup", Map.of(
+                "hits", cacheStatistics.getTotalHits(),
+                "misses", cacheStatistics.getTotalMisses()
+        ));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", placeCacheAdminService.getSize());
+        stats.put("hitRatio", hitRatio);
+        stats.put("age", placeCacheAdminService.getAgeDistribution());
+        stats.put("negative", Map.of(
+                "entries", emptyResultCache.size(),
+                "hits", emptyResultCache.getHits(),
+                "ttlSeconds", emptyResultCache.getTtlSeconds()
+        ));
+        stats.put("errorBackoff", Map.of(
+                "keysBackingOff", upstreamErrorBackoff.getActiveKeys(),
+                "failures", upstreamErrorBackoff.getFailures(),
+                "rejectedRequests", upstreamErrorBackoff.getRejected(),
+                "initialSeconds", upstreamErrorBackoff.getInitialSeconds(),
+                "maxSeconds", upstreamErrorBackoff.getMaxSeconds()
+        ));
+        stats.put("lookup", placeLookupService.getStats());
+        stats.put("coherence", cacheCoherenceService.getStats());
+        stats.put("deadlineFallbacks", placeFallbackService.getStats());
+        stats.put("upstream", googlePlacesService.getMetrics());
+        stats.put("writeBehind", placeWriteBehindQueue.getMetrics());
+        stats.put("columnar", columnarPlaceStore.getStats());
+        stats.put("timestamp", System.currentTimeMillis());
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get the most requested cache keys
+     *
+     * @param limit Maximum number of keys to return
+     * @return Keys ("longitude:latitude:radius") with their request counts
+     */
+    @GetMapping("/cache/top-keys")
+    public ResponseEntity<Map<String, Object>> getTopCacheKeys(@RequestParam(defaultValue = "20") int limit) {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : cacheStatistics.getTopKeys(Math.max(1, Math.min(limit, 1000)))) {
+            keys.add(Map.of("key", entry.getKey(), "requests", entry.getValue()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("keys", keys);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Invalidate the cached places for a single query
+     *
+     * @return Number of deleted rows
+     */
+    @DeleteMapping("/cache/entries")
+    public ResponseEntity<Map<String, Object>> invalidateCacheKey(
+            @RequestParam Double longitude,
+            @RequestParam Double latitude,
+            @RequestParam Integer radius) {
+        log.info("Cache invalidation requested for lon: {}, lat: {}, radius: {}", longitude, latitude, radius);
+        long deleted = placeCacheAdminService.invalidateQuery(new PlaceSearchQuery(longitude, latitude, radius));
+        return ResponseEntity.ok(createInvalidationResponse(deleted));
+    }
+
+    /**
+     * Invalidate cached places for all queries centered inside a bounding box
+     *
+     * @return Number of deleted rows
+     */
+    @DeleteMapping("/cache/entries/bbox")
+    public ResponseEntity<Map<String, Object>> invalidateCacheBoundingBox(
+            @RequestParam Double minLongitude,
+            @RequestParam Double maxLongitude,
+            @RequestParam Double minLatitude,
+            @RequestParam Double maxLatitude) {
+        if (minLongitude > maxLongitude || minLatitude > maxLatitude) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Invalid bounding box. Minimums must not exceed maximums.");
+            return ResponseEntity.badRequest().body(error);
+        }
+        log.info("Cache invalidation requested for bbox lon [{}, {}], lat [{}, {}]",
+                minLongitude, maxLongitude, minLatitude, maxLatitude);
+        long deleted = placeCacheAdminService.invalidateBoundingBox(minLongitude, maxLongitude, minLatitude, maxLatitude);
+        return ResponseEntity.ok(createInvalidationResponse(deleted));
+    }
+
+    /**
+     * Invalidate cached places older than the given age
+     *
+     * @param maxAgeMinutes Entries cached longer ago than this are removed
+     * @return Number of deleted rows
+     */
+    @DeleteMapping("/cache/entries/older-than")
+    public ResponseEntity<Map<String, Object>> invalidateCacheOlderThan(@RequestParam long maxAgeMinutes) {
+        if (maxAgeMinutes < 0) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Invalid age. Must be zero or more minutes.");
+            return ResponseEntity.badRequest().body(error);
+        }
+        log.info("Cache invalidation requested for entries older than {} minutes", maxAgeMinutes);
+        long deleted = placeCacheAdminService.invalidateOlderThan(Duration.ofMinutes(maxAgeMinutes));
+        return ResponseEntity.ok(createInvalidationResponse(deleted));
+    }
+
+    /**
+     * Export the place cache to a new binary snapshot file
+     *
+     * @return Snapshot file name, place and query counts, size and duration
+     */
+    @PostMapping("/cache/snapshots")
+    public ResponseEntity<Map<String, Object>> exportCacheSnapshot() {
+        log.info("Cache snapshot export requested");
+        return ResponseEntity.ok(placeSnapshotService.exportSnapshot());
+    }
+
+    /**
+     * List the snapshot files available for import
+     *
+     * @return Snapshot file names, newest first
+     */
+    @GetMapping("/cache/snapshots")
+    public ResponseEntity<Map<String, Object>> listCacheSnapshots() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("snapshots", placeSnapshotService.listSnapshots());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Import a snapshot file into the place cache
+     *
+     * @param name Snapshot file name as returned by the export or list endpoints
+     * @return Imported place and query counts and duration
+     */
+    @PostMapping("/cache/snapshots/{name}/import")
+    public ResponseEntity<Map<String, Object>> importCacheSnapshot(@PathVariable String name) {
+        log.info("Cache snapshot import requested for {}", name);
+        try {
+            return ResponseEntity.ok(placeSnapshotService.importSnapshot(name));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Rebuild the columnar place store from the place cache now instead of waiting for the schedule
+     *
+     * @return Columnar store size after the rebuild
+     */
+    @PostMapping("/cache/columnar/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildColumnarStore() {
+        if (!columnarPlaceStore.isEnabled()) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Columnar place store is disabled.");
+            return ResponseEntity.badRequest().body(error);
+        }
+        log.info("Columnar place store rebuild requested");
+        columnarPlaceStore.rebuild();
+        return ResponseEntity.ok(columnarPlaceStore.getStats());
+    }
+
+    /**
+     * Helper method to create an invalidation response
+     */
+    private Map<String, Object> createInvalidationResponse(long deleted) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("deleted", deleted);
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+}
@@ -0,0 +1,123 @@
+package com.localscopelocal.controller;
+
+import com.localscopelocal.model.PlaceField;
+import com.localscopelocal.model.PlaceSearchQuery;
+import com.localscopelocal.service.CacheCoherenceService;
+import com.localscopelocal.service.PlaceService;
+import com.localscopelocal.service.PlacesApiException;
+import com.localscopelocal.service.UpstreamUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints backend nodes call on each other; like the admin API, not to be exposed publicly.
+ * The calling node has already applied its rate limits to the client's request, so requests are
+ * only taken from the addresses of places.coherence.nodes, and the endpoints only exist when it is set.
+ */
+@RestController
+@RequestMapping("/api/internal")
+@ConditionalOnExpression("!'${places.coherence.nodes:}'.isEmpty()")
+public class InternalController {
+
+    private static final Logger log = LoggerFactory.getLogger(InternalController.class);
+
+    private final PlaceService placeService;
+    private final CacheCoherenceService coherence;
+
+    @Autowired
+    public InternalController(PlaceService placeService, CacheCoherenceService coherence) {
+        this.placeService = placeService;
+        this.coherence = coherence;
+    }
+
+    /**
+     * Places for a query whose key this node owns, as entities with the fields they hold
+     *
+     * @param fieldMask Fields the calling node needs
+     * @param types Comma-separated place types, sorted, as in the caller's cache key
+     * @param request HTTP request, to check the caller is a node
+     * @return The places, the fields they hold and whether they are complete; 503 if Google is failing,
+     * 403 if the caller is not a node
+     */
+    @GetMapping("/places")
+    public ResponseEntity<Map<String, Object>> getPlacesForPeer(
+            @RequestParam Double longitude,
+            @RequestParam Double latitude,
+            @RequestParam Integer radius,
+            @RequestParam Integer fieldMask,
+            @RequestParam(required = false) String types,
+            HttpServletRequest request) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (!coherence.isNodeAddress(request.getRemoteAddr())) {
+            log.warn("Refusing peer request from {}, which is not a configured node", request.getRemoteAddr());
+            response.put("error", "Not a configured node.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+        String invalid = validate(longitude, latitude, radius, fieldMask);
+        List<String> includedTypes = PlaceController.parseTypes(types);
+        if (invalid == null && includedTypes == null) {
+            invalid = "Invalid types.";
+        }
+        if (invalid != null) {
+            response.put("error", invalid);
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        PlaceSearchQuery query = new PlaceSearchQuery(longitude, latitude, radius);
+        query.setFieldMask(fieldMask);
+        query.setIncludedTypes(includedTypes.isEmpty() ? null : includedTypes);
+
+        try {
+            CacheCoherenceService.PeerResult result = placeService.getNearbyPlacesForPeer(query);
+            response.put("fieldMask", result.getFieldMask());
+            response.put("complete", result.isComplete());
+            response.put("places", result.getPlaces());
+            return ResponseEntity.ok(response);
+        } catch (UpstreamUnavailableException e) {
+            log.warn("Google unavailable for peer request {}", query.createCacheKey());
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (PlacesApiException e) {
+            if (!e.isClientError()) {
+                throw e;
+            }
+            log.warn("Google rejected peer request {} as invalid", query.createCacheKey());
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * The same bounds the public search endpoint enforces, and a field mask of known fields
+     *
+     * @return The error message, or null if the parameters are valid
+     */
+    private static String validate(double longitude, double latitude, int radius, int fieldMask) {
+        if (longitude < -180 || longitude > 180) {
+            return "Invalid longitude.";
+        }
+        if (latitude < -90 || latitude > 90) {
+            return "Invalid latitude.";
+        }
+        if (radius <= 0 || radius > 50000) {
+            return "Invalid radius.";
+        }
+        if (fieldMask <= 0 || (fieldMask & ~PlaceField.ALL) != 0) {
+            return "Invalid fieldMask.";
+        }
+        return null;
+    }
+}
@@ -1,22 +1,47 @@
 package com.localscopelocal.controller;
 
-import com.localscopelocal.model.Place;
 import com.localscopelocal.model.PlaceSearchQuery;
+import com.localscopelocal.model.PlaceSortOrder;
+import com.localscopelocal.service.ClientAddressResolver;
+import com.localscopelocal.service.ClientKey;
+import com.localscopelocal.service.ColumnarPlaceStore;
+import com.localscopelocal.service.FairAdmissionQueue;
+import com.localscopelocal.service.FieldMaskProfiles;
+import com.localscopelocal.service.NearbyPlace;
+import com.localscopelocal.service.PlaceFallbackService;
+import com.localscopelocal.service.PlaceGeoSearchService;
+import com.localscopelocal.service.PlaceLookupService;
+import com.localscopelocal.service.PlaceSearchResult;
 import com.localscopelocal.service.PlaceService;
+import com.localscopelocal.service.PlacesApiException;
 import com.localscopelocal.service.RateLimitService;
-import com.localscopelocal.service.IpAddressUtil;
+import com.localscopelocal.service.RequestDeadline;
+import com.localscopelocal.service.SearchHeatmap;
+import com.localscopelocal.service.UpstreamUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
 /**
  * REST controller for place-related endpoints
@@ -28,90 +53,498 @@ public class PlaceController {
 
     private static final Logger log = LoggerFactory.getLogger(PlaceController.class);
 
+    private static final Pattern PLACE_TYPE = Pattern.compile("[a-z0-9_]+");
+    private static final Pattern PLACE_ID = Pattern.compile("[A-Za-z0-9_-]{1,256}");
+    private static final int MAX_INCLUDED_TYPES = 50; // Google Places API limit
+    private static final int MAX_LIMIT = 1000;
+
+    private static final byte[] PLACES_PREFIX = "{\"places\":".getBytes(StandardCharsets.US_ASCII);
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private static final byte[] PLACE_PREFIX = "{\"place\":".getBytes(StandardCharsets.US_ASCII);
+
     private final PlaceService placeService;
     private final RateLimitService rateLimitService;
+    private final ClientAddressResolver clientAddressResolver;
+    private final FieldMaskProfiles fieldMaskProfiles;
+    private final ColumnarPlaceStore columnarPlaceStore;
+    private final FairAdmissionQueue admissionQueue;
+    private final PlaceGeoSearchService placeGeoSearchService;
+    private final SearchHeatmap searchHeatmap;
+    private final PlaceLookupService placeLookupService;
+    private final PlaceFallbackService fallbackService;
+    private final Executor requestExecutor;
+    private final boolean asyncEnabled;
+
+    // Time budget of a search when the client does not give one; 0 for none
+    @Value("${places.deadline.default-ms:5000}")
+    private long defaultDeadlineMillis = 5000;
+
+    // Shortest budget a client may ask for; shorter ones are raised to it
+    @Value("${places.deadline.min-ms:100}")
+    private long minDeadlineMillis = 100;
+
+    // Longest budget a client may ask for
+    @Value("${places.deadline.max-ms:30000}")
+    private long maxDeadlineMillis = 30000;
+
+    // Kept back from the budget to build the fallback answer and write the response
+    @Value("${places.deadline.fallback-reserve-ms:50}")
+    private long fallbackReserveMillis = 50;
+
+    // Largest side of a box searched on the place index, in degrees
+    @Value("${places.indexed.max-box-degrees:1.0}")
+    private double maxBoxDegrees = 1.0;
 
     @Autowired
-    public PlaceController(PlaceService placeService, RateLimitService rateLimitService) {
+    public PlaceController(PlaceService placeService, RateLimitService rateLimitService,
+                           ClientAddressResolver clientAddressResolver, FieldMaskProfiles fieldMaskProfiles,
+                           ColumnarPlaceStore columnarPlaceStore, FairAdmissionQueue admissionQueue,
+                           PlaceGeoSearchService placeGeoSearchService, SearchHeatmap searchHeatmap,
+                           PlaceLookupService placeLookupService, PlaceFallbackService fallbackService,
+                           @Qualifier("placesDbExecutor") Executor requestExecutor,
+                           @Value("${places.async.enabled:false}") boolean asyncEnabled) {
         this.placeService = placeService;
         this.rateLimitService = rateLimitService;
+        this.clientAddressResolver = clientAddressResolver;
+        this.fieldMaskProfiles = fieldMaskProfiles;
+        this.columnarPlaceStore = columnarPlaceStore;
+        this.admissionQueue = admissionQueue;
+        this.placeGeoSearchService = placeGeoSearchService;
+        this.searchHeatmap = searchHeatmap;
+        this.placeLookupService = placeLookupService;
+        this.fallbackService = fallbackService;
+        this.requestExecutor = requestExecutor;
+        this.asyncEnabled = asyncEnabled;
     }
 
     /**
-     * GET endpoint to search for nearby places with rate limiting
+     * GET endpoint to search for nearby places with rate limiting.
+     * With places.async.enabled the search runs on the pipeline executors and the servlet
+     * thread is released while it waits for Google; otherwise it completes on this thread.
+     * Near the global rate limit, requests wait briefly in a fair admission queue before the
+     * search starts; cache hits are admitted first.
+     * Every search has a deadline, by default places.deadline.default-ms and otherwise the
+     * X-Request-Timeout-Ms header's, between places.deadline.min-ms and places.deadline.max-ms. A search
+     * that runs out of time, in the queue or waiting for Google, is answered with what is cached in
+     * memory for the query and flagged "partial"; one that runs out of time in the queue and would
+     * not have been admitted either is answered with 429.
      *
      * @param longitude Longitude coordinate
      * @param latitude Latitude coordinate
      * @param radius Search radius in meters
+     * @param fields Field-mask profile: "pins" (id and location) or "details" (default)
+     * @param types Comma-separated place types to restrict the search to, e.g. "restaurant,cafe"
+     * @param sort Server-side ordering: "distance", "rating" or "score" (rating blended with proximity)
+     * @param limit Maximum number of places to return
+     * @param timeoutMillis Time budget of the request in milliseconds
      * @param request HTTP request for IP extraction
      * @return List of places matching the search criteria or rate limit error
      */
     @GetMapping
-    public ResponseEntity<?> getNearbyPlaces(
+    public CompletableFuture<ResponseEntity<?>> getNearbyPlaces(
             @RequestParam Double longitude,
             @RequestParam Double latitude,
             @RequestParam Integer radius,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long timeoutMillis,
             HttpServletRequest request) {
         
-        String clientIp = IpAddressUtil.getNormalizedIpAddress(request);
+        ClientKey clientIp = clientAddressResolver.resolve(request);
         log.info("Received request for places from IP: {} at lon: {}, lat: {}, radius: {}", 
                 clientIp, longitude, latitude, radius);
         
-        // Check rate limits first
-        RateLimitService.RateLimitResult rateLimitResult = rateLimitService.isRequestAllowed(clientIp);
-        if (!rateLimitResult.isAllowed()) {
-            log.warn("Rate limit exceeded for IP: {} - {}", clientIp, rateLimitResult.getMessage());
-            
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Rate limit exceeded");
-            errorResponse.put("message", rateLimitResult.getMessage());
-            errorResponse.put("remainingIpRequests", rateLimitResult.getRemainingIpRequests());
-            errorResponse.put("remainingGlobalRequests", rateLimitResult.getRemainingGlobalRequests());
-            
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
-        }
-        
         // Validate parameters
         if (longitude < -180 || longitude > 180) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("Invalid longitude. Must be between -180 and 180."));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid longitude. Must be between -180 and 180.")));
         }
         
         if (latitude < -90 || latitude > 90) {
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("Invalid latitude. Must be between -90 and 90."));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid latitude. Must be between -90 and 90.")));
         }
         
         if (radius <= 0 || radius > 50000) { // Google Places API limit
-            return ResponseEntity.badRequest()
-                    .body(createErrorResponse("Invalid radius. Must be between 1 and 50000 meters."));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid radius. Must be between 1 and 50000 meters.")));
+        }
+        
+        Integer fieldMask = fieldMaskProfiles.resolve(fields);
+        if (fieldMask == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid fields. Must be one of " + fieldMaskProfiles.getProfiles().keySet() + ".")));
+        }
+        
+        List<String> includedTypes = parseTypes(types);
+        if (includedTypes == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid types. Must be up to " + MAX_INCLUDED_TYPES
+                            + " comma-separated place types such as restaurant,cafe.")));
+        }
+        
+        PlaceSortOrder sortOrder = null;
+        if (sort != null && !sort.isEmpty()) {
+            sortOrder = PlaceSortOrder.fromParameter(sort);
+            if (sortOrder == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("Invalid sort. Must be one of distance, rating or score.")));
+            }
         }
         
+        if (limit != null && (limit <= 0 || limit > MAX_LIMIT)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid limit. Must be between 1 and " + MAX_LIMIT + ".")));
+        }
+        
+        if (timeoutMillis != null && timeoutMillis <= 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("Invalid " + REQUEST_TIMEOUT_HEADER + ". Must be a positive number of milliseconds.")));
+        }
+        RequestDeadline deadline = createDeadline(timeoutMillis);
+        
         PlaceSearchQuery query = new PlaceSearchQuery();
         query.setLongitude(longitude);
         query.setLatitude(latitude);
         query.setRadius(radius);
+        query.setFieldMask(fieldMask);
+        query.setIncludedTypes(includedTypes.isEmpty() ? null : includedTypes);
+        query.setSortOrder(sortOrder);
+        query.setLimit(limit);
         
-        try {
-            List<Place> places = placeService.getNearbyPlaces(query);
-            
-            // Add rate limit info to response headers
-            Map<String, Object> response = new HashMap<>();
-            response.put("places", places);
-            response.put("count", places.size());
-            response.put("rateLimitInfo", Map.of(
-                    "remainingIpRequests", rateLimitResult.getRemainingIpRequests(),
-                    "remainingGlobalRequests", rateLimitResult.getRemainingGlobalRequests()
-            ));
+        // Check rate limits, queueing fairly when the global limit is near
+        CompletableFuture<RateLimitService.RateLimitResult> admission =
+                admissionQueue.admit(clientIp, placeService.isCachedInMemory(query), deadline);
+        if (!asyncEnabled) {
+            return search(query, deadline, admission.join(), clientIp);
+        }
+        if (admission.isDone()) {
+            return search(query, deadline, admission.join(), clientIp);
+        }
+        // Queued requests are completed by the single admission thread; move them off it
+        return admission
+                .thenComposeAsync(rateLimitResult -> search(query, deadline, rateLimitResult, clientIp), requestExecutor)
+                .exceptionally(error -> createFailureResponse(error, clientIp));
+    }
+
+    /**
+     * The request's deadline, less the time kept back to answer once it has passed
+     */
+    private RequestDeadline createDeadline(Long timeoutMillis) {
+        long budget = timeoutMillis != null
+                ? Math.min(Math.max(timeoutMillis, minDeadlineMillis), maxDeadlineMillis) : defaultDeadlineMillis;
+        if (budget <= 0) {
+            return RequestDeadline.none();
+        }
+        return RequestDeadline.after(Math.max(0, budget - fallbackReserveMillis));
+    }
+
+    /**
+     * Run an admitted search, or answer with 429 when the rate limits rejected it. A request
+     * admitted after its deadline passed in the admission queue is answered from the cache instead.
+     */
+    private CompletableFuture<ResponseEntity<?>> search(PlaceSearchQuery query, RequestDeadline deadline,
+                                                        RateLimitService.RateLimitResult rateLimitResult,
+                                                        ClientKey clientIp) {
+        if (rateLimitResult.isAllowed() && rateLimitResult.isDeadlineExceeded()) {
+            log.warn("Deadline passed in the admission queue for IP: {}, answering from the cache", clientIp);
+            PlaceSearchResult result = fallbackService.fallback(query);
+            recordSearch(query, result);
+            return CompletableFuture.completedFuture(createPlacesResponse(result, rateLimitResult, clientIp));
+        }
+        if (!rateLimitResult.isAllowed()) {
+            log.warn("Rate limit exceeded for IP: {} - {}", clientIp, rateLimitResult.getMessage());
             
-            log.info("Successfully returned {} places for IP: {}", places.size(), clientIp);
-            return ResponseEntity.ok(response);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Rate limit exceeded");
+            errorResponse.put("message", rateLimitResult.getMessage());
+            errorResponse.put("remainingIpRequests", rateLimitResult.getRemainingIpRequests());
+            errorResponse.put("remainingGlobalRequests", rateLimitResult.getRemainingGlobalRequests());
             
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse));
+        }
+        
+        if (!asyncEnabled) {
+            try {
+                PlaceSearchResult result = placeService.getNearbyPlaces(query, deadline);
+                recordSearch(query, result);
+                return CompletableFuture.completedFuture(createPlacesResponse(result, rateLimitResult, clientIp));
+            } catch (Exception e) {
+                recordSearch(query, null);
+                return CompletableFuture.completedFuture(createFailureResponse(e, clientIp));
+            }
+        }
+
+        CompletableFuture<PlaceSearchResult> search;
+        try {
+            search = placeService.getNearbyPlacesAsync(query, deadline);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(createFailureResponse(e, clientIp));
+        }
+        return search.handle((result, error) -> {
+            recordSearch(query, result);
+            return error == null
+                    ? createPlacesResponse(result, rateLimitResult, clientIp)
+                    : createFailureResponse(error, clientIp);
+        });
+    }
+
+    /**
+     * Add a search to the query-density heatmap; a failed search counts as a miss
+     */
+    private void recordSearch(PlaceSearchQuery query, PlaceSearchResult result) {
+        searchHeatmap.record(query.getLatitude(), query.getLongitude(), result != null && result.isFromCache());
+    }
+
+    /**
+     * GET endpoint to search every cached place within a radius, nearest first.
+     * Never calls Google and covers places cached by any earlier search. Answered from the columnar
+     * place store when it is enabled (rebuilt periodically, so it can lag the cache), and otherwise
+     * from the database through its geohash index. Rate limited like searches, admitted as cache hits.
+     *
+     * @param longitude Longitude coordinate
+     * @param latitude Latitude coordinate
+     * @param radius Search radius in meters
+     * @param types Comma-separated place types to keep, e.g. "restaurant,cafe"
+     * @param limit Maximum number of places to return
+     * @param request HTTP request for IP extraction
+     * @return Cached places with their distance in meters, or rate limit error
+     */
+    @GetMapping("/indexed")
+    public ResponseEntity<Map<String, Object>> getIndexedPlaces(
+            @RequestParam Double longitude,
+            @RequestParam Double latitude,
+            @RequestParam Integer radius,
+            @RequestParam(required = false) String types,
+            @RequestParam(defaultValue = "100") Integer limit,
+            HttpServletRequest request) {
+        if (longitude < -180 || longitude > 180) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid longitude. Must be between -180 and 180."));
+        }
+        if (latitude < -90 || latitude > 90) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid latitude. Must be between -90 and 90."));
+        }
+        if (radius <= 0 || radius > 50000) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid radius. Must be between 1 and 50000 meters."));
+        }
+        List<String> includedTypes = parseTypes(types);
+        if (includedTypes == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid types. Must be up to " + MAX_INCLUDED_TYPES
+                    + " comma-separated place types such as restaurant,cafe."));
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid limit. Must be between 1 and " + MAX_LIMIT + "."));
+        }
+
+        ResponseEntity<Map<String, Object>> rejected = admitIndexed(request);
+        if (rejected != null) {
+            return rejected;
+        }
+
+        List<NearbyPlace> places = columnarPlaceStore.isEnabled()
+                ? columnarPlaceStore.findWithin(latitude, longitude, radius, includedTypes, limit)
+                : placeGeoSearchService.findWithinRadius(latitude, longitude, radius, includedTypes, limit);
+        return ResponseEntity.ok(createNearbyResponse(places));
+    }
+
+    /**
+     * GET endpoint to search every cached place inside a bounding box, nearest to its center first.
+     * Answered from the database through its geohash index; a minLongitude greater than
+     * maxLongitude denotes a box crossing the antimeridian. Neither side of the box may exceed
+     * places.indexed.max-box-degrees. Rate limited like searches, admitted as cache hits.
+     *
+     * @param types Comma-separated place types to keep, e.g. "restaurant,cafe"
+     * @param limit Maximum number of places to return
+     * @param request HTTP request for IP extraction
+     * @return Cached places with their distance in meters from the box center, or rate limit error
+     */
+    @GetMapping("/indexed/bbox")
+    public ResponseEntity<Map<String, Object>> getIndexedPlacesInBox(
+            @RequestParam Double minLongitude,
+            @RequestParam Double maxLongitude,
+            @RequestParam Double minLatitude,
+            @RequestParam Double maxLatitude,
+            @RequestParam(required = false) String types,
+            @RequestParam(defaultValue = "100") Integer limit,
+            HttpServletRequest request) {
+        if (minLongitude < -180 || maxLongitude > 180 || maxLongitude < -180 || minLongitude > 180) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid longitude. Must be between -180 and 180."));
+        }
+        if (minLatitude < -90 || maxLatitude > 90 || minLatitude > maxLatitude) {
+            return ResponseEntity.badRequest().body(createErrorResponse(
+                    "Invalid latitude. Must be between -90 and 90, minimum not above maximum."));
+        }
+        double longitudeSpan = maxLongitude < minLongitude ? maxLongitude + 360 - minLongitude : maxLongitude - minLongitude;
+        if (maxLatitude - minLatitude > maxBoxDegrees || longitudeSpan > maxBoxDegrees) {
+            return ResponseEntity.badRequest().body(createErrorResponse(
+                    "Invalid box. Latitude and longitude spans must each be at most " + maxBoxDegrees + " degrees."));
+        }
+        List<String> includedTypes = parseTypes(types);
+        if (includedTypes == null) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid types. Must be up to " + MAX_INCLUDED_TYPES
+                    + " comma-separated place types such as restaurant,cafe."));
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid limit. Must be between 1 and " + MAX_LIMIT + "."));
+        }
+
+        ResponseEntity<Map<String, Object>> rejected = admitIndexed(request);
+        if (rejected != null) {
+            return rejected;
+        }
+
+        return ResponseEntity.ok(createNearbyResponse(placeGeoSearchService.findWithinBox(
+                minLatitude, maxLatitude, minLongitude, maxLongitude, includedTypes, limit)));
+    }
+
+    /**
+     * Admit an indexed search against the rate limits. It never calls Google, so it is admitted as a cache hit.
+     *
+     * @return null if admitted, otherwise the rate limit error
+     */
+    private ResponseEntity<Map<String, Object>> admitIndexed(HttpServletRequest request) {
+        ClientKey clientIp = clientAddressResolver.resolve(request);
+        RateLimitService.RateLimitResult rateLimitResult = admissionQueue.admit(clientIp, true).join();
+        if (rateLimitResult.isAllowed()) {
+            return null;
+        }
+        log.warn("Rate limit exceeded for IP: {} - {}", clientIp, rateLimitResult.getMessage());
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Rate limit exceeded");
+        errorResponse.put("message", rateLimitResult.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+    }
+
+    /**
+     * GET endpoint to look up one place by id, e.g. one picked from earlier search results.
+     * Answered from memory or the database when the place is cached with the lookup fields,
+     * otherwise from Google Place Details. Rate limited like searches; cached places are admitted first.
+     *
+     * @param id Place id as returned by the search endpoints
+     * @param request HTTP request for IP extraction
+     * @return The place and whether it came from memory, the database or Google
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getPlace(@PathVariable String id, HttpServletRequest request) {
+        if (!PLACE_ID.matcher(id).matches()) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Invalid place id."));
+        }
+        ClientKey clientIp = clientAddressResolver.resolve(request);
+        RateLimitService.RateLimitResult rateLimitResult =
+                admissionQueue.admit(clientIp, placeLookupService.isCachedInMemory(id)).join();
+        if (!rateLimitResult.isAllowed()) {
+            log.warn("Rate limit exceeded for IP: {} - {}", clientIp, rateLimitResult.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Rate limit exceeded");
+            errorResponse.put("message", rateLimitResult.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+        }
+
+        PlaceLookupService.Lookup lookup;
+        try {
+            lookup = placeLookupService.lookup(id);
         } catch (Exception e) {
-            log.error("Error processing request for IP: {}", clientIp, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("An error occurred while processing your request."));
+            return createFailureResponse(e, clientIp);
+        }
+        if (!lookup.isFound()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse("Place not found."));
+        }
+
+        byte[] placeJson = lookup.getJson();
+        byte[] tail = (",\"source\":\"" + lookup.getSource() + "\"}").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[PLACE_PREFIX.length + placeJson.length + tail.length];
+        System.arraycopy(PLACE_PREFIX, 0, body, 0, PLACE_PREFIX.length);
+        System.arraycopy(placeJson, 0, body, PLACE_PREFIX.length, placeJson.length);
+        System.arraycopy(tail, 0, body, PLACE_PREFIX.length + placeJson.length, tail.length);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static Map<String, Object> createNearbyResponse(List<NearbyPlace> places) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("places", places);
+        response.put("count", places.size());
+        return response;
+    }
+
+    /**
+     * Parse the types parameter into a sorted, de-duplicated list so equivalent
+     * searches share a cache key
+     *
+     * @return The types (empty if none were given), or null if the parameter is invalid
+     */
+    static List<String> parseTypes(String types) {
+        if (types == null || types.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        TreeSet<String> parsed = new TreeSet<>();
+        for (String type : types.split(",")) {
+            String trimmed = type.trim().toLowerCase();
+            if (!PLACE_TYPE.matcher(trimmed).matches()) {
+                return null;
+            }
+            parsed.add(trimmed);
+        }
+        return parsed.size() <= MAX_INCLUDED_TYPES ? new ArrayList<>(parsed) : null;
+    }
+
+    /**
+     * Build the successful search response, including rate limit info and whether the result
+     * was cut short by the deadline.
+     * The places array is already serialized, so the body is assembled from bytes
+     * instead of mapping objects on every request.
+     */
+    private ResponseEntity<?> createPlacesResponse(PlaceSearchResult result,
+                                                   RateLimitService.RateLimitResult rateLimitResult,
+                                                   ClientKey clientIp) {
+        byte[] placesJson = result.getPlacesJson();
+        String tail = ",\"count\":" + result.getCount()
+                + ",\"rateLimitInfo\":{\"remainingIpRequests\":" + rateLimitResult.getRemainingIpRequests()
+                + ",\"remainingGlobalRequests\":" + rateLimitResult.getRemainingGlobalRequests() + "}"
+                + (result.isPartial() ? ",\"partial\":true" : "") + "}";
+
+        byte[] body = new byte[PLACES_PREFIX.length + placesJson.length + tail.length()];
+        System.arraycopy(PLACES_PREFIX, 0, body, 0, PLACES_PREFIX.length);
+        System.arraycopy(placesJson, 0, body, PLACES_PREFIX.length, placesJson.length);
+        byte[] tailBytes = tail.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(tailBytes, 0, body, PLACES_PREFIX.length + placesJson.length, tailBytes.length);
+        
+        log.info("Successfully returned {} places for IP: {}", result.getCount(), clientIp);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Map a search failure to an error response; a saturated pipeline and a failing
+     * upstream are reported as 503, the latter with the key's backoff as Retry-After, and a
+     * request Google rejected as invalid as 400
+     */
+    private ResponseEntity<?> createFailureResponse(Throwable error, ClientKey clientIp) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof UpstreamUnavailableException) {
+            long retryAfterSeconds = Math.max(1, (((UpstreamUnavailableException) cause).getRetryAfterMillis() + 999) / 1000);
+            log.warn("Google Places API unavailable for request from IP: {}, retry after {}s", clientIp, retryAfterSeconds);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(createErrorResponse("Place search is temporarily unavailable. Please try again in "
+                            + retryAfterSeconds + " seconds."));
+        }
+        if (cause instanceof PlacesApiException && ((PlacesApiException) cause).isClientError()) {
+            log.warn("Google Places API rejected the request from IP: {} as invalid", clientIp);
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("The request was rejected by Google Places API as invalid."));
+        }
+        if (cause instanceof RejectedExecutionException) {
+            log.warn("Search pipeline saturated, rejecting request for IP: {}", clientIp);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse("The service is busy. Please try again shortly."));
         }
+        log.error("Error processing request for IP: {}", clientIp, cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(createErrorResponse("An error occurred while processing your request."));
     }
 
     /**
@@ -122,11 +555,11 @@ public class PlaceController {
      */
     @GetMapping("/rate-limit-status")
     public ResponseEntity<Map<String, Object>> getRateLimitStatus(HttpServletRequest request) {
-        String clientIp = IpAddressUtil.getNormalizedIpAddress(request);
+        ClientKey clientIp = clientAddressResolver.resolve(request);
         RateLimitService.RateLimitStatus status = rateLimitService.getCurrentStatus();
         
         Map<String, Object> response = new HashMap<>();
-        response.put("clientIp", clientIp);
+        response.put("clientIp", clientIp.toString());
         response.put("rateLimitEnabled", status.isEnabled());
         response.put("globalRequests", status.getCurrentGlobalRequests());
         response.put("globalLimit", status.getGlobalLimit());
@@ -0,0 +1,206 @@
+package com.localscopelocal.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Geohash encoding of coordinates, used as the spatial index key of cached places.
+ *
+ * A geohash interleaves longitude and latitude bits and writes them in base 32, so every prefix is a
+ * rectangular cell and all places inside a cell share the prefix. The base-32 alphabet is in ASCII
+ * order, so the places of a cell form one contiguous range of the indexed column, and neighbouring
+ * cells often extend that range. An area is searched by covering it with a few cells and range-scanning
+ * the index once per run of consecutive cells.
+ */
+public final class GeoHash {
+
+    /** Precision of the stored key: cells of about 4.8 m by 4.8 m */
+    public static final int STORED_PRECISION = 9;
+
+    // Coverings use at most this many cells before falling back to a coarser precision
+    private static final int MAX_COVER_CELLS = 16;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    // Sorts after every geohash; ends the range of the last cell
+    private static final String AFTER_LAST = "~";
+
+    private GeoHash() {
+    }
+
+    /**
+     * @return The geohash of the coordinates with the given number of characters
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean lonBit = true;
+        for (int i = 0; i < precision; i++) {
+            int value = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                value <<= 1;
+                if (lonBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitude >= mid) {
+                        value |= 1;
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        value |= 1;
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                lonBit = !lonBit;
+            }
+            hash[i] = BASE32[value];
+        }
+        return new String(hash);
+    }
+
+    /**
+     * @return The stored key for a location, or null if it is incomplete
+     */
+    public static String of(Double latitude, Double longitude) {
+        return latitude != null && longitude != null ? encode(latitude, longitude, STORED_PRECISION) : null;
+    }
+
+    /**
+     * @return The cell of a geohash as {minLat, maxLat, minLon, maxLon}
+     */
+    public static double[] bounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean lonBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int value = indexOf(hash.charAt(i));
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = (value >> bit & 1) == 1;
+                if (lonBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (set) {
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                lonBit = !lonBit;
+            }
+        }
+        return new double[]{minLat, maxLat, minLon, maxLon};
+    }
+
+    /** Cell height in degrees of latitude */
+    static double cellHeight(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+
+    /** Cell width in degrees of longitude */
+    static double cellWidth(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    /**
+     * Key ranges covering a bounding box, at the finest precision that needs no more than
+     * {@value #MAX_COVER_CELLS} cells. A box crossing the antimeridian must be split by the caller.
+     *
+     * @return Ranges of stored keys as {fromInclusive, toExclusive}
+     */
+    public static List<String[]> coverRanges(double minLat, double maxLat, double minLon, double maxLon) {
+        minLat = Math.max(-90, minLat);
+        maxLat = Math.min(90, maxLat);
+        minLon = Math.max(-180, minLon);
+        maxLon = Math.min(180, maxLon);
+        int precision = STORED_PRECISION;
+        while (precision > 1 && cellCount(minLat, maxLat, minLon, maxLon, precision) > MAX_COVER_CELLS) {
+            precision--;
+        }
+        TreeSet<String> cells = new TreeSet<>();
+        cover(minLat, maxLat, minLon, maxLon, precision, cells);
+        return toRanges(cells);
+    }
+
+    private static void cover(double minLat, double maxLat, double minLon, double maxLon, int precision,
+                              TreeSet<String> cells) {
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        long firstRow = (long) Math.floor((minLat + 90) / height);
+        long lastRow = (long) Math.floor((Math.min(maxLat, 90 - 1e-9) + 90) / height);
+        long firstColumn = (long) Math.floor((minLon + 180) / width);
+        long lastColumn = (long) Math.floor((Math.min(maxLon, 180 - 1e-9) + 180) / width);
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                cells.add(encode(-90 + (row + 0.5) * height, -180 + (column + 0.5) * width, precision));
+            }
+        }
+    }
+
+    private static long cellCount(double minLat, double maxLat, double minLon, double maxLon, int precision) {
+        long rows = (long) Math.floor((maxLat + 90) / cellHeight(precision)) - (long) Math.floor((minLat + 90) / cellHeight(precision)) + 1;
+        long columns = (long) Math.floor((maxLon + 180) / cellWidth(precision)) - (long) Math.floor((minLon + 180) / cellWidth(precision)) + 1;
+        return rows * columns;
+    }
+
+    /**
+     * Merge sorted cells of equal length into ranges of consecutive keys
+     */
+    private static List<String[]> toRanges(TreeSet<String> cells) {
+        List<String[]> ranges = new ArrayList<>();
+        String from = null;
+        String to = null;
+        for (String cell : cells) {
+            if (from != null && cell.equals(to)) {
+                to = successor(cell);
+                continue;
+            }
+            if (from != null) {
+                ranges.add(new String[]{from, to});
+            }
+            from = cell;
+            to = successor(cell);
+        }
+        if (from != null) {
+            ranges.add(new String[]{from, to});
+        }
+        return ranges;
+    }
+
+    /**
+     * The next geohash of the same length, or a key sorting after all of them for the last one
+     */
+    static String successor(String hash) {
+        char[] chars = hash.toCharArray();
+        for (int i = chars.length - 1; i >= 0; i--) {
+            int value = indexOf(chars[i]);
+            if (value < 31) {
+                chars[i] = BASE32[value + 1];
+                return new String(chars);
+            }
+            chars[i] = BASE32[0];
+        }
+        return AFTER_LAST;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a geohash character: " + c);
+    }
+}
@@ -7,13 +7,18 @@ import lombok.NoArgsConstructor;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
 import java.time.LocalDateTime;
 
 /**
  * Entity class representing a place from Google Places API (v1)
  */
 @Entity
+@Table(indexes = @Index(name = "idx_place_geohash", columnList = "geohash"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,6 +39,9 @@ public class Place {
     
     private Double latitude;
     private Double longitude;
+    // Geohash of the location, kept in step with it on every save; indexed for spatial range scans
+    @Column(length = GeoHash.STORED_PRECISION)
+    private String geohash;
     
     @Lob
     @Column(columnDefinition = "CLOB")
@@ -43,8 +51,13 @@ public class Place {
     private Double queryLongitude;
     private Double queryLatitude;
     private Integer queryRadius;
+    // Number of places Google returned for the query; fewer than the maximum means the result is complete
+    private Integer queryResultCount;
     
     private LocalDateTime createdAt;
+
+    // Bit mask of the PlaceField values fetched for this row; null for rows cached before field profiles
+    private Integer fieldMask;
     
     // Explicit getters and setters
     public String getId() {
@@ -111,6 +124,20 @@ public class Place {
         this.longitude = longitude;
     }
 
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateGeohash() {
+        geohash = GeoHash.of(latitude, longitude);
+    }
+
     public String getRawResponse() {
         return rawResponse;
     }
@@ -143,6 +170,14 @@ public class Place {
         this.queryRadius = queryRadius;
     }
 
+    public Integer getQueryResultCount() {
+        return queryResultCount;
+    }
+
+    public void setQueryResultCount(Integer queryResultCount) {
+        this.queryResultCount = queryResultCount;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -150,4 +185,19 @@ public class Place {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Integer getFieldMask() {
+        return fieldMask;
+    }
+
+    public void setFieldMask(Integer fieldMask) {
+        this.fieldMask = fieldMask;
+    }
+
+    /**
+     * @return The fields held by this row; legacy rows were always fetched with every field
+     */
+    public int getFieldMaskOrAll() {
+        return fieldMask != null ? fieldMask : PlaceField.ALL;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.localscopelocal.model;
+
+/**
+ * Place fields that can be requested from the Places API (v1) field mask.
+ * A set of fields is represented as an int bit mask, one bit per constant.
+ */
+public enum PlaceField {
+    ID("id"),
+    DISPLAY_NAME("displayName"),
+    FORMATTED_ADDRESS("formattedAddress"),
+    PRIMARY_TYPE("primaryType"),
+    WEBSITE_URI("websiteUri"),
+    RATING("rating"),
+    LOCATION("location");
+
+    /** Mask with every field set; what was always requested before profiles existed */
+    public static final int ALL = (1 << values().length) - 1;
+
+    private final String apiName;
+
+    PlaceField(String apiName) {
+        this.apiName = apiName;
+    }
+
+    public String getApiName() {
+        return apiName;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean isIn(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    /**
+     * @param apiName The field name as used in the API, e.g. "displayName"
+     * @return The matching field, or null if unknown
+     */
+    public static PlaceField fromApiName(String apiName) {
+        for (PlaceField field : values()) {
+            if (field.apiName.equals(apiName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build the X-Goog-FieldMask header value for Nearby Search, e.g. "places.id,places.location"
+     */
+    public static String toNearbySearchFieldMask(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (PlaceField field : values()) {
+            if (field.isIn(mask)) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append("places.").append(field.apiName);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Build the X-Goog-FieldMask header value for Place Details, e.g. "id,location"
+     */
+    public static String toPlaceDetailsFieldMask(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (PlaceField field : values()) {
+            if (field.isIn(mask)) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(field.apiName);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Copy the given fields from one place to another
+     */
+    public static void copy(Place from, Place to, int mask) {
+        for (PlaceField field : values()) {
+            if (!field.isIn(mask)) {
+                continue;
+            }
+            switch (field) {
+                case ID:
+                    to.setId(from.getId());
+                    break;
+                case DISPLAY_NAME:
+                    to.setDisplayName(from.getDisplayName());
+                    break;
+                case FORMATTED_ADDRESS:
+                    to.setFormattedAddress(from.getFormattedAddress());
+                    break;
+                case PRIMARY_TYPE:
+                    to.setPrimaryType(from.getPrimaryType());
+                    break;
+                case WEBSITE_URI:
+                    to.setWebsiteUri(from.getWebsiteUri());
+                    break;
+                case RATING:
+                    to.setRating(from.getRating());
+                    break;
+                case LOCATION:
+                    to.setLatitude(from.getLatitude());
+                    to.setLongitude(from.getLongitude());
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled field " + field);
+            }
+        }
+    }
+}
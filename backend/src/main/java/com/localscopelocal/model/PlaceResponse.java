@@ -0,0 +1,63 @@
+package com.localscopelocal.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Public representation of a place in API responses.
+ * Only the fields clients use; the raw upstream JSON and the cache bookkeeping
+ * columns of the {@link Place} entity are not exposed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlaceResponse {
+
+    private final String id;
+    private final String displayName;
+    private final String formattedAddress;
+    private final Double rating;
+    private final String primaryType;
+    private final String websiteUri;
+    private final Double latitude;
+    private final Double longitude;
+
+    public PlaceResponse(String id, String displayName, String formattedAddress, Double rating,
+                         String primaryType, String websiteUri, Double latitude, Double longitude) {
+        this.id = id;
+        this.displayName = displayName;
+        this.formattedAddress = formattedAddress;
+        this.rating = rating;
+        this.primaryType = primaryType;
+        this.websiteUri = websiteUri;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public static PlaceResponse from(Place place) {
+        return new PlaceResponse(place.getId(), place.getDisplayName(), place.getFormattedAddress(),
+                place.getRating(), place.getPrimaryType(), place.getWebsiteUri(),
+                place.getLatitude(), place.getLongitude());
+    }
+
+    /**
+     * Project a place onto the given fields; the others are left out of the JSON
+     */
+    public static PlaceResponse from(Place place, int fieldMask) {
+        boolean location = PlaceField.LOCATION.isIn(fieldMask);
+        return new PlaceResponse(place.getId(),
+                PlaceField.DISPLAY_NAME.isIn(fieldMask) ? place.getDisplayName() : null,
+                PlaceField.FORMATTED_ADDRESS.isIn(fieldMask) ? place.getFormattedAddress() : null,
+                PlaceField.RATING.isIn(fieldMask) ? place.getRating() : null,
+                PlaceField.PRIMARY_TYPE.isIn(fieldMask) ? place.getPrimaryType() : null,
+                PlaceField.WEBSITE_URI.isIn(fieldMask) ? place.getWebsiteUri() : null,
+                location ? place.getLatitude() : null,
+                location ? place.getLongitude() : null);
+    }
+
+    public String getId() { return id; }
+    public String getDisplayName() { return displayName; }
+    public String getFormattedAddress() { return formattedAddress; }
+    public Double getRating() { return rating; }
+    public String getPrimaryType() { return primaryType; }
+    public String getWebsiteUri() { return websiteUri; }
+    public Double getLatitude() { return latitude; }
+    public Double getLongitude() { return longitude; }
+}
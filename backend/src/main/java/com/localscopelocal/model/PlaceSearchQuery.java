@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * Represents a place search query with parameters
  */
@@ -14,13 +16,41 @@ public class PlaceSearchQuery {
     private Double longitude;
     private Double latitude;
     private Integer radius;
+    // Bit mask of PlaceField values to return; null means all fields
+    private Integer fieldMask;
+    // Place types to restrict the search to, sorted and de-duplicated; null means all types
+    private List<String> includedTypes;
+    // Server-side ordering and maximum number of results; null means upstream order, all results
+    private PlaceSortOrder sortOrder;
+    private Integer limit;
+
+    public PlaceSearchQuery(Double longitude, Double latitude, Integer radius) {
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.radius = radius;
+    }
     
     /**
-     * Creates a cache key from the query parameters
+     * Creates a cache key from the query parameters.
+     * The field mask is not part of the key: one entry serves every profile it covers.
      * @return A string representation of the query parameters
      */
     public String createCacheKey() {
-        return String.format("%.6f:%.6f:%d", longitude, latitude, radius);
+        String key = String.format("%.6f:%.6f:%d", longitude, latitude, radius);
+        return hasIncludedTypes() ? key + ":" + String.join(",", includedTypes) : key;
+    }
+
+    public boolean hasIncludedTypes() {
+        return includedTypes != null && !includedTypes.isEmpty();
+    }
+
+    /**
+     * @return A copy of this query for all place types, with the same fields
+     */
+    public PlaceSearchQuery withoutIncludedTypes() {
+        PlaceSearchQuery allTypes = new PlaceSearchQuery(longitude, latitude, radius);
+        allTypes.setFieldMask(fieldMask);
+        return allTypes;
     }
     
     // Explicit getters and setters
@@ -47,4 +77,58 @@ public class PlaceSearchQuery {
     public void setRadius(Integer radius) {
         this.radius = radius;
     }
+
+    public Integer getFieldMask() {
+        return fieldMask;
+    }
+
+    public void setFieldMask(Integer fieldMask) {
+        this.fieldMask = fieldMask;
+    }
+
+    public List<String> getIncludedTypes() {
+        return includedTypes;
+    }
+
+    public void setIncludedTypes(List<String> includedTypes) {
+        this.includedTypes = includedTypes;
+    }
+
+    public PlaceSortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(PlaceSortOrder sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return Whether results have to be ordered or cut before they are returned
+     */
+    public boolean isRanked() {
+        return sortOrder != null || limit != null;
+    }
+
+    /**
+     * @return The requested fields, defaulting to all fields
+     */
+    public int getFieldMaskOrAll() {
+        return fieldMask != null ? fieldMask : PlaceField.ALL;
+    }
+
+    /**
+     * @return The fields the cache has to hold for this query: the requested fields
+     * plus those the sort order ranks on
+     */
+    public int getRequiredFieldMask() {
+        return getFieldMaskOrAll() | (sortOrder != null ? sortOrder.getRequiredFields() : 0);
+    }
 } 
\ No newline at end of file
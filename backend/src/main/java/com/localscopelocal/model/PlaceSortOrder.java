@@ -0,0 +1,39 @@
+package com.localscopelocal.model;
+
+/**
+ * Server-side orderings for search results
+ */
+public enum PlaceSortOrder {
+    /** Nearest to the search center first */
+    DISTANCE(PlaceField.LOCATION.bit()),
+    /** Highest rated first; unrated places last */
+    RATING(PlaceField.RATING.bit()),
+    /** Blend of rating and proximity, best first */
+    SCORE(PlaceField.LOCATION.bit() | PlaceField.RATING.bit());
+
+    private final int requiredFields;
+
+    PlaceSortOrder(int requiredFields) {
+        this.requiredFields = requiredFields;
+    }
+
+    /**
+     * @return Bit mask of the PlaceField values needed to rank by this order
+     */
+    public int getRequiredFields() {
+        return requiredFields;
+    }
+
+    /**
+     * @param name The request parameter value, e.g. "distance"
+     * @return The matching order, or null if unknown
+     */
+    public static PlaceSortOrder fromParameter(String name) {
+        for (PlaceSortOrder order : values()) {
+            if (order.name().equalsIgnoreCase(name)) {
+                return order;
+            }
+        }
+        return null;
+    }
+}
@@ -1,10 +1,13 @@
 package com.localscopelocal.repository;
 
 import com.localscopelocal.model.Place;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,4 +29,82 @@ public interface PlaceRepository extends JpaRepository<Place, String> {
            "p.queryLatitude = :latitude AND " +
            "p.queryRadius = :radius")
     List<Place> findBySearchParameters(Double longitude, Double latitude, Integer radius);
-} 
\ No newline at end of file
+
+    /**
+     * Find a page of ids cached for one query (for incremental invalidation)
+     */
+    @Query("SELECT p.id FROM Place p WHERE " +
+           "p.queryLongitude = :longitude AND " +
+           "p.queryLatitude = :latitude AND " +
+           "p.queryRadius = :radius")
+    List<String> findIdsBySearchParameters(Double longitude, Double latitude, Integer radius, Pageable pageable);
+
+    /**
+     * Find a page of ids whose query center lies inside a bounding box
+     */
+    @Query("SELECT p.id FROM Place p WHERE " +
+           "p.queryLongitude BETWEEN :minLongitude AND :maxLongitude AND " +
+           "p.queryLatitude BETWEEN :minLatitude AND :maxLatitude")
+    List<String> findIdsByQueryCenterWithin(Double minLongitude, Double maxLongitude,
+                                            Double minLatitude, Double maxLatitude, Pageable pageable);
+
+    /**
+     * Find the location, rating and type of the places nearest a point in one range of the geohash
+     * index that also lie inside a bounding box. The geohash range is what the index scans; the box
+     * trims the cell edges. Distance is ordered on the flat-earth approximation, with longitude
+     * differences scaled by the squared cosine of the latitude. The ordering is computed, so every row
+     * in the range and box is read and sorted; the page only bounds the rows returned, and the caller
+     * bounds the box.
+     *
+     * @param fromGeohash Lowest geohash of the range, inclusive
+     * @param toGeohash Highest geohash of the range, exclusive
+     * @param allTypes Whether to ignore {@code types}
+     * @param types Primary types to keep; must not be empty
+     * @return Rows of id, latitude, longitude, rating and primary type, nearest first
+     */
+    @Query("SELECT p.id, p.latitude, p.longitude, p.rating, p.primaryType FROM Place p WHERE " +
+           "p.geohash >= :fromGeohash AND p.geohash < :toGeohash AND " +
+           "p.latitude BETWEEN :minLatitude AND :maxLatitude AND " +
+           "p.longitude BETWEEN :minLongitude AND :maxLongitude AND " +
+           "(:allTypes = TRUE OR p.primaryType IN (:types)) " +
+           "ORDER BY (p.latitude - :latitude) * (p.latitude - :latitude) + " +
+           "(p.longitude - :longitude) * (p.longitude - :longitude) * :longitudeScale")
+    List<Object[]> findNearestInGeohashRange(String fromGeohash, String toGeohash,
+                                             Double minLatitude, Double maxLatitude,
+                                             Double minLongitude, Double maxLongitude,
+                                             Boolean allTypes, Collection<String> types,
+                                             Double latitude, Double longitude, Double longitudeScale,
+                                             Pageable pageable);
+
+    /**
+     * Find a page of ids cached before the cutoff
+     */
+    @Query("SELECT p.id FROM Place p WHERE p.createdAt < :cutoff")
+    List<String> findIdsCreatedBefore(LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Count places cached at or after the given time
+     */
+    long countByCreatedAtGreaterThanEqual(LocalDateTime since);
+
+    @Query("SELECT MIN(p.createdAt) FROM Place p")
+    LocalDateTime findOldestCreatedAt();
+
+    @Query("SELECT MAX(p.createdAt) FROM Place p")
+    LocalDateTime findNewestCreatedAt();
+
+    /**
+     * Number of distinct queries (cache keys) with cached places
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT DISTINCT query_longitude, query_latitude, query_radius FROM place)",
+           nativeQuery = true)
+    long countDistinctQueries();
+
+    /**
+     * Approximate stored size in characters of the variable-length columns
+     */
+    @Query("SELECT SUM(COALESCE(LENGTH(p.id), 0) + COALESCE(LENGTH(p.displayName), 0) + " +
+           "COALESCE(LENGTH(p.formattedAddress), 0) + COALESCE(LENGTH(p.primaryType), 0) + " +
+           "COALESCE(LENGTH(p.websiteUri), 0) + COALESCE(LENGTH(p.rawResponse), 0)) FROM Place p")
+    Long sumTextLength();
+}
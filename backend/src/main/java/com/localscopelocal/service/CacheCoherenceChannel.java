@@ -0,0 +1,35 @@
+package com.localscopelocal.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport for cache announcements between nodes. Delivery is best effort: an event may be
+ * lost, and the in-memory result cache's TTL (places.cache.memory.ttl-seconds) bounds how long
+ * a missed announcement leaves a stale copy in memory.
+ * Implementations deliver every published event to the subscribers of every node, including
+ * the publishing one, and never on the publishing thread.
+ */
+public interface CacheCoherenceChannel {
+
+    void publish(CacheEvent event);
+
+    void subscribe(Consumer<CacheEvent> subscriber);
+
+    default void close() {
+    }
+
+    /**
+     * A channel for a single node: publishing goes nowhere
+     */
+    static CacheCoherenceChannel disabled() {
+        return new CacheCoherenceChannel() {
+            @Override
+            public void publish(CacheEvent event) {
+            }
+
+            @Override
+            public void subscribe(Consumer<CacheEvent> subscriber) {
+            }
+        };
+    }
+}
@@ -0,0 +1,349 @@
+package com.localscopelocal.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceSearchQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the caches of several backend nodes consistent with each other.
+ *
+ * Nodes announce over a {@link CacheCoherenceChannel} when they fetch places from Google and
+ * when the admin API invalidates entries. On a fill elsewhere a node drops its in-memory copy,
+ * so its next search reloads from the database (when shared) or the owner; on an invalidation
+ * it applies the same invalidation locally.
+ *
+ * With places.coherence.nodes set, each query key has one owner on a consistent hash ring of
+ * the nodes, keyed on the all-types cache key so that type-filtered searches share an owner
+ * with the search they are filtered from. A node misses to the owner instead of to Google, and
+ * the owner collapses concurrent requests for a key, its own and its peers', into one Google
+ * call, so each area is fetched upstream once for the whole cluster. If the owner cannot be
+ * reached, the node calls Google itself.
+ */
+@Service
+public class CacheCoherenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheCoherenceService.class);
+
+    public static final String PEER_PATH = "/api/internal/places";
+
+    private final CacheCoherenceChannel channel;
+    private final PlaceResultCache resultCache;
+    private final EmptyResultCache emptyResults;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final Map<String, String> nodeUrls = new LinkedHashMap<>();
+    // Addresses the node URLs resolved to at startup; peer requests are only taken from these
+    private final Set<InetAddress> nodeAddresses = new HashSet<>();
+    private final ConsistentHashRing ring;
+    private final RestTemplate restTemplate;
+
+    private final List<Consumer<CacheEvent>> evictionHandlers = new ArrayList<>();
+    private final ConcurrentMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder forwardFailures = new LongAdder();
+    private final LongAdder peerRequests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param nodeId This node's id; generated when empty
+     * @param nodes Members of the ring as id=baseUrl, comma-separated, including this node; empty
+     *              disables routing and leaves only the announcements
+     * @param forwardTimeoutMillis Connect and read timeout for a request to the owner, which may
+     *                             itself be waiting on Google
+     * @param virtualNodes Points per node on the ring
+     */
+    @Autowired
+    public CacheCoherenceService(CacheCoherenceChannel channel, PlaceResultCache resultCache,
+                                 EmptyResultCache emptyResults, ObjectMapper objectMapper,
+                                 @Value("${places.coherence.node-id:}") String nodeId,
+                                 @Value("${places.coherence.nodes:}") String nodes,
+                                 @Value("${places.coherence.forward-timeout-ms:5000}") int forwardTimeoutMillis,
+                                 @Value("${places.coherence.virtual-nodes:128}") int virtualNodes) {
+        this.channel = channel;
+        this.resultCache = resultCache;
+        this.emptyResults = emptyResults;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId.isEmpty() ? "node-" + UUID.randomUUID().toString().substring(0, 8) : nodeId;
+
+        for (String node : nodes.split(",")) {
+            String trimmed = node.trim();
+            if (!trimmed.isEmpty()) {
+                int equals = trimmed.indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException("Expected id=url in places.coherence.nodes: " + trimmed);
+                }
+                nodeUrls.put(trimmed.substring(0, equals), trimmed.substring(equals + 1).replaceAll("/+$", ""));
+            }
+        }
+        if (!nodeUrls.isEmpty() && !nodeUrls.containsKey(this.nodeId)) {
+            throw new IllegalArgumentException("places.coherence.nodes does not list this node, " + this.nodeId);
+        }
+        this.ring = nodeUrls.size() > 1 ? new ConsistentHashRing(nodeUrls.keySet(), virtualNodes) : null;
+        for (String url : nodeUrls.values()) {
+            String host = URI.create(url).getHost();
+            try {
+                nodeAddresses.addAll(Arrays.asList(InetAddress.getAllByName(host)));
+            } catch (UnknownHostException e) {
+                log.warn("Could not resolve node {}; its peer requests will be refused", url);
+            }
+        }
+
+        this.restTemplate = new RestTemplate(new DeadlineRequestFactory(forwardTimeoutMillis, forwardTimeoutMillis));
+
+        channel.subscribe(this::onEvent);
+        if (ring != null) {
+            log.info("Node {} routes misses over a ring of {}", this.nodeId, nodeUrls.keySet());
+        }
+    }
+
+    /**
+     * Whether a request comes from one of the nodes in places.coherence.nodes
+     *
+     * @param remoteAddress The connecting address, not one taken from forwarding headers
+     */
+    public boolean isNodeAddress(String remoteAddress) {
+        if (remoteAddress == null || !IpAddressUtil.parse(remoteAddress, new long[2])) {
+            return false;
+        }
+        try {
+            // A literal address, so this does not look anything up
+            return nodeAddresses.contains(InetAddress.getByName(remoteAddress));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return The node owning the query's key, or null when misses are not routed
+     */
+    public String ownerOf(PlaceSearchQuery query) {
+        return ring == null ? null : ring.ownerOf(query.withoutIncludedTypes().createCacheKey());
+    }
+
+    /**
+     * Whether a miss for the query should go to another node rather than to Google
+     */
+    public boolean isOwnedElsewhere(PlaceSearchQuery query) {
+        String owner = ownerOf(query);
+        return owner != null && !owner.equals(nodeId);
+    }
+
+    /**
+     * Ask the owner of the query's key for its places. The owner answers from its cache or
+     * fetches from Google, without forwarding again.
+     *
+     * @param deadline The request times out when it passes
+     * @return The owner's places, or null if this node owns the key or the owner did not answer in time
+     */
+    public PeerResult fetchFromOwner(PlaceSearchQuery query, RequestDeadline deadline) {
+        if (!isOwnedElsewhere(query) || deadline.isExpired()) {
+            return null;
+        }
+        String owner = ownerOf(query);
+        UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl(nodeUrls.get(owner) + PEER_PATH)
+                .queryParam("longitude", query.getLongitude())
+                .queryParam("latitude", query.getLatitude())
+                .queryParam("radius", query.getRadius())
+                .queryParam("fieldMask", query.getRequiredFieldMask());
+        if (query.hasIncludedTypes()) {
+            uri.queryParam("types", String.join(",", query.getIncludedTypes()));
+        }
+        try {
+            forwarded.increment();
+            byte[] body = DeadlineRequestFactory.within(deadline,
+                    () -> restTemplate.getForObject(uri.build().toUri(), byte[].class));
+            JsonNode response = objectMapper.readTree(body);
+            if (response == null || !response.path("places").isArray()) {
+                throw new IOException("No places in the owner's response");
+            }
+            Place[] places = objectMapper.treeToValue(response.get("places"), Place[].class);
+            return new PeerResult(Arrays.asList(places), response.path("fieldMask").asInt(),
+                    response.path("complete").asBoolean());
+        } catch (RestClientException | IOException e) {
+            forwardFailures.increment();
+            log.warn("Owner {} did not answer for {}, calling Google instead: {}",
+                    owner, query.createCacheKey(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Answer a peer's request, sharing one search among concurrent requests for the same key
+     * and fields
+     *
+     * @param search The search to run on this node, without forwarding
+     */
+    public PeerResult servePeer(PlaceSearchQuery query, Supplier<PeerResult> search) {
+        peerRequests.increment();
+        return coalesce("peer:" + query.createCacheKey() + "#" + query.getRequiredFieldMask(), search);
+    }
+
+    /**
+     * Run the work, or if it is already running under the same key, wait for that run and
+     * share its result or exception
+     */
+    public <T> T coalesce(String key, Supplier<T> work) {
+        return coalesce(key, work, RequestDeadline.none());
+    }
+
+    /**
+     * {@link #coalesce(String, Supplier)}, waiting for another run no longer than the deadline
+     * leaves. A run cut short by its own deadline is not shared: the work is run again.
+     *
+     * @throws DeadlineExceededException if the deadline passed while waiting for another run
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String key, Supplier<T> work, RequestDeadline deadline) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> running;
+        while ((running = (CompletableFuture<T>) inFlight.putIfAbsent(key, mine)) != null) {
+            coalesced.increment();
+            try {
+                return deadline.isBounded()
+                        ? running.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                        : running.get();
+            } catch (TimeoutException e) {
+                throw new DeadlineExceededException("Deadline passed waiting for " + key, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DeadlineExceededException("Interrupted waiting for " + key, e);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof DeadlineExceededException) || deadline.isExpired()) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                            : new CompletionException(e.getCause());
+                }
+                inFlight.remove(key, running);
+            }
+        }
+        try {
+            T result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Tell the other nodes this node fetched the query's places from Google
+     */
+    public void announceFill(PlaceSearchQuery query) {
+        publish(CacheEvent.fill(nodeId, query));
+    }
+
+    /**
+     * Tell the other nodes about an invalidation made on this node
+     */
+    public void publish(CacheEvent event) {
+        published.increment();
+        channel.publish(event);
+    }
+
+    /**
+     * Register the handler applying other nodes' invalidations locally
+     */
+    public synchronized void onEviction(Consumer<CacheEvent> handler) {
+        evictionHandlers.add(handler);
+    }
+
+    private void onEvent(CacheEvent event) {
+        if (nodeId.equals(event.getOrigin())) {
+            return;
+        }
+        received.increment();
+        log.debug("Cache event from {}: {}", event.getOrigin(), event);
+        if (event.getType() == CacheEvent.Type.FILL) {
+            PlaceSearchQuery query = event.getQuery();
+            String key = query.createCacheKey();
+            resultCache.invalidate(query);
+            emptyResults.invalidateIf(empty -> empty.createCacheKey().equals(key)
+                    || !query.hasIncludedTypes() && empty.withoutIncludedTypes().createCacheKey().equals(key));
+            return;
+        }
+        List<Consumer<CacheEvent>> handlers;
+        synchronized (this) {
+            handlers = new ArrayList<>(evictionHandlers);
+        }
+        for (Consumer<CacheEvent> handler : handlers) {
+            handler.accept(event);
+        }
+    }
+
+    /**
+     * Announcement and routing counts for the admin API
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("ring", ring == null ? Collections.emptyList() : new ArrayList<>(nodeUrls.keySet()));
+        stats.put("published", published.sum());
+        stats.put("received", received.sum());
+        stats.put("forwarded", forwarded.sum());
+        stats.put("forwardFailures", forwardFailures.sum());
+        stats.put("peerRequests", peerRequests.sum());
+        stats.put("coalesced", coalesced.sum());
+        return stats;
+    }
+
+    /**
+     * Places the owner of a key holds for a query, with the fields they carry
+     */
+    public static final class PeerResult {
+        private final List<Place> places;
+        private final int fieldMask;
+        private final boolean complete;
+
+        public PeerResult(List<Place> places, int fieldMask, boolean complete) {
+            this.places = places;
+            this.fieldMask = fieldMask;
+            this.complete = complete;
+        }
+
+        public List<Place> getPlaces() { return places; }
+        public int getFieldMask() { return fieldMask; }
+        public boolean isComplete() { return complete; }
+    }
+}
@@ -0,0 +1,132 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.PlaceSearchQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Announcement of a cache change on one node, sent to the other nodes over a
+ * {@link CacheCoherenceChannel}. Encoded as one short line of text, so it fits in a datagram.
+ */
+public final class CacheEvent {
+
+    public enum Type {
+        /** Places for a query were fetched from Google; copies elsewhere are older */
+        FILL,
+        /** Places cached for one query were invalidated */
+        EVICT_QUERY,
+        /** Places cached for queries centered in a bounding box were invalidated */
+        EVICT_BOUNDING_BOX,
+        /** Places cached longer ago than an age were invalidated */
+        EVICT_OLDER_THAN
+    }
+
+    private static final String SEPARATOR = "|";
+
+    private final Type type;
+    private final String origin;
+    private final double[] values;
+    private final String types; // Comma-separated included types of a query, or empty
+
+    private CacheEvent(Type type, String origin, double[] values, String types) {
+        this.type = type;
+        this.origin = origin;
+        this.values = values;
+        this.types = types;
+    }
+
+    public static CacheEvent fill(String origin, PlaceSearchQuery query) {
+        return forQuery(Type.FILL, origin, query);
+    }
+
+    public static CacheEvent evictQuery(String origin, PlaceSearchQuery query) {
+        return forQuery(Type.EVICT_QUERY, origin, query);
+    }
+
+    public static CacheEvent evictBoundingBox(String origin, double minLongitude, double maxLongitude,
+                                              double minLatitude, double maxLatitude) {
+        return new CacheEvent(Type.EVICT_BOUNDING_BOX, origin,
+                new double[]{minLongitude, maxLongitude, minLatitude, maxLatitude}, "");
+    }
+
+    public static CacheEvent evictOlderThan(String origin, long maxAgeMillis) {
+        return new CacheEvent(Type.EVICT_OLDER_THAN, origin, new double[]{maxAgeMillis}, "");
+    }
+
+    private static CacheEvent forQuery(Type type, String origin, PlaceSearchQuery query) {
+        return new CacheEvent(type, origin,
+                new double[]{query.getLongitude(), query.getLatitude(), query.getRadius()},
+                query.hasIncludedTypes() ? String.join(",", query.getIncludedTypes()) : "");
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return The query of a FILL or EVICT_QUERY event
+     */
+    public PlaceSearchQuery getQuery() {
+        PlaceSearchQuery query = new PlaceSearchQuery(values[0], values[1], (int) values[2]);
+        if (!types.isEmpty()) {
+            query.setIncludedTypes(Arrays.asList(types.split(",")));
+        }
+        return query;
+    }
+
+    /**
+     * @return The bounding box of an EVICT_BOUNDING_BOX event as {minLon, maxLon, minLat, maxLat}
+     */
+    public double[] getBoundingBox() {
+        return values.clone();
+    }
+
+    /**
+     * @return The age of an EVICT_OLDER_THAN event
+     */
+    public long getMaxAgeMillis() {
+        return (long) values[0];
+    }
+
+    /**
+     * Encode as TYPE|origin|value,value,...|types
+     */
+    public byte[] encode() {
+        StringBuilder sb = new StringBuilder(type.name()).append(SEPARATOR).append(origin).append(SEPARATOR);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(SEPARATOR).append(types).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not an encoded event
+     */
+    public static CacheEvent decode(byte[] bytes, int length) {
+        String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        List<String> parts = Arrays.asList(line.split("\\|", -1));
+        if (parts.size() != 4) {
+            throw new IllegalArgumentException("Malformed cache event: " + line);
+        }
+        String[] encoded = parts.get(2).split(",");
+        double[] values = new double[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            values[i] = Double.parseDouble(encoded[i]);
+        }
+        return new CacheEvent(Type.valueOf(parts.get(0)), parts.get(1), values, parts.get(3));
+    }
+
+    @Override
+    public String toString() {
+        return new String(encode(), StandardCharsets.UTF_8);
+    }
+}
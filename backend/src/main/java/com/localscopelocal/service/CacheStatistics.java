@@ -0,0 +1,167 @@
+package com.localscopelocal.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory statistics for the place cache: hit/miss counts over sliding windows and the
+ * most frequently requested cache keys.
+ *
+ * Hits and misses go into a ring of one-second buckets covering the longest window, so a
+ * record is two array writes and a window ratio is a sum over at most that many buckets.
+ * Buckets are recycled without locking, so a handful of counts can be lost when two threads
+ * roll the same bucket at once; that is acceptable for monitoring.
+ */
+@Component
+public class CacheStatistics {
+
+    /** Sliding windows reported by {@link #getHitRatios()}, in seconds */
+    public static final int[] WINDOWS_SECONDS = {60, 300, 900};
+
+    private static final int BUCKETS = 900;
+
+    private final AtomicLongArray bucketSecond = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray bucketHits = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray bucketMisses = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder totalHits = new LongAdder();
+    private final LongAdder totalMisses = new LongAdder();
+
+    private final ConcurrentMap<String, LongAdder> keyRequests = new ConcurrentHashMap<>();
+
+    @Value("${places.cache.stats.max-tracked-keys:10000}")
+    private int maxTrackedKeys = 10000;
+
+    /**
+     * Record a cache lookup
+     *
+     * @param cacheKey The normalized query key
+     * @param hit Whether the lookup was served from cache
+     */
+    public void record(String cacheKey, boolean hit) {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % BUCKETS);
+        long current = bucketSecond.get(index);
+        if (current != second && bucketSecond.compareAndSet(index, current, second)) {
+            bucketHits.set(index, 0);
+            bucketMisses.set(index, 0);
+        }
+
+        if (hit) {
+            bucketHits.incrementAndGet(index);
+            totalHits.increment();
+        } else {
+            bucketMisses.incrementAndGet(index);
+            totalMisses.increment();
+        }
+
+        LongAdder counter = keyRequests.get(cacheKey);
+        if (counter == null && keyRequests.size() < maxTrackedKeys) {
+            counter = keyRequests.computeIfAbsent(cacheKey, k -> new LongAdder());
+        }
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Hit/miss counts and ratio for each window in {@link #WINDOWS_SECONDS}
+     */
+    public List<WindowStats> getHitRatios() {
+        long now = System.currentTimeMillis() / 1000;
+        List<WindowStats> result = new ArrayList<>(WINDOWS_SECONDS.length);
+        for (int window : WINDOWS_SECONDS) {
+            long hits = 0;
+            long misses = 0;
+            for (int i = 0; i < window; i++) {
+                long second = now - i;
+                int index = (int) (second % BUCKETS);
+                if (bucketSecond.get(index) == second) {
+                    hits += bucketHits.get(index);
+                    misses += bucketMisses.get(index);
+                }
+            }
+            result.add(new WindowStats(window, hits, misses));
+        }
+        return result;
+    }
+
+    public long getTotalHits() {
+        return totalHits.sum();
+    }
+
+    public long getTotalMisses() {
+        return totalMisses.sum();
+    }
+
+    /**
+     * Most requested cache keys since startup (with periodic decay)
+     *
+     * @param limit Maximum number of keys to return
+     * @return Key and request count pairs, most requested first
+     */
+    public List<Map.Entry<String, Long>> getTopKeys(int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(keyRequests.size());
+        keyRequests.forEach((key, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(key, count.sum())));
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * Forget statistics for a key once its cache entry has been invalidated
+     */
+    public void forgetKey(String cacheKey) {
+        keyRequests.remove(cacheKey);
+    }
+
+    /**
+     * Halve all per-key counts every 10 minutes and drop keys that reach zero, so the
+     * top-keys view follows current traffic and the tracked set does not stay full forever
+     */
+    @Scheduled(fixedRate = 600_000)
+    public void decayKeyCounts() {
+        keyRequests.entrySet().removeIf(entry -> {
+            LongAdder counter = entry.getValue();
+            long count = counter.sumThenReset();
+            if (count <= 1) {
+                return true;
+            }
+            counter.add(count / 2);
+            return false;
+        });
+    }
+
+    /**
+     * Hit/miss counts for one sliding window
+     */
+    public static class WindowStats {
+        private final int windowSeconds;
+        private final long hits;
+        private final long misses;
+
+        public WindowStats(int windowSeconds, long hits, long misses) {
+            this.windowSeconds = windowSeconds;
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        public int getWindowSeconds() { return windowSeconds; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
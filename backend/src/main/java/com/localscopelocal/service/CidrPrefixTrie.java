@@ -0,0 +1,84 @@
+package com.localscopelocal.service;
+
+import java.util.Arrays;
+
+/**
+ * Binary prefix trie over 128-bit addresses, answering "is this address inside any of the
+ * configured CIDR blocks" in at most 128 steps with no allocation.
+ *
+ * Nodes live in parallel primitive arrays rather than as objects. The trie is built once
+ * from configuration and then only read, so lookups are safe from any thread without locking.
+ */
+public final class CidrPrefixTrie {
+
+    // children[2 * node] is the 0-branch, children[2 * node + 1] the 1-branch; 0 means "none"
+    private int[] children = new int[32];
+    private boolean[] terminal = new boolean[16];
+    private int nodeCount = 1;
+    private int prefixCount;
+
+    /**
+     * Add a prefix. Addresses are in the 128-bit form used by {@link IpAddressUtil}.
+     *
+     * @param high High 64 bits of the network address
+     * @param low Low 64 bits of the network address
+     * @param prefixLength Prefix length in bits (0-128)
+     */
+    public void add(long high, long low, int prefixLength) {
+        int node = 0;
+        for (int bit = 0; bit < prefixLength; bit++) {
+            if (terminal[node]) {
+                // A shorter prefix already covers this one
+                return;
+            }
+            int branch = 2 * node + bit(high, low, bit);
+            if (children[branch] == 0) {
+                // newNode() may grow the arrays, so call it before indexing into children
+                int child = newNode();
+                children[branch] = child;
+            }
+            node = children[branch];
+        }
+        terminal[node] = true;
+        prefixCount++;
+    }
+
+    /**
+     * @return true if the address falls inside any added prefix
+     */
+    public boolean contains(long high, long low) {
+        int node = 0;
+        for (int bit = 0; bit < 128; bit++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = children[2 * node + bit(high, low, bit)];
+            if (node == 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    public boolean isEmpty() {
+        return prefixCount == 0;
+    }
+
+    public int size() {
+        return prefixCount;
+    }
+
+    private int newNode() {
+        if (nodeCount == terminal.length) {
+            terminal = Arrays.copyOf(terminal, nodeCount * 2);
+            children = Arrays.copyOf(children, nodeCount * 4);
+        }
+        return nodeCount++;
+    }
+
+    private static int bit(long high, long low, int index) {
+        return index < 64
+                ? (int) (high >>> (63 - index)) & 1
+                : (int) (low >>> (127 - index)) & 1;
+    }
+}
@@ -0,0 +1,153 @@
+package com.localscopelocal.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the client behind an HTTP request to a compact {@link ClientKey} for rate limiting.
+ *
+ * Forwarding headers are only believed when the connection comes from a trusted proxy
+ * (by default the local nginx). X-Forwarded-For is walked from the right, skipping trusted
+ * hops, so a client cannot spoof its address by prepending entries. Keys can be widened to
+ * a subnet so that, for example, one IPv6 /64 counts as a single client.
+ */
+@Service
+public class ClientAddressResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientAddressResolver.class);
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    private static final String X_REAL_IP = "X-Real-IP";
+
+    // Key shared by requests whose peer address cannot be parsed: the unspecified address ::,
+    // which no real peer has. Their forwarding headers are never read.
+    static final ClientKey UNPARSEABLE_PEER = new ClientKey(0L, 0L, 128);
+
+    // Scratch space for parsing, so resolving an address does not allocate
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final CidrPrefixTrie trustedProxies = new CidrPrefixTrie();
+    private final int ipv4PrefixLength;
+    private final int ipv6PrefixLength;
+
+    public ClientAddressResolver(
+            @Value("${rate.limit.trusted.proxies:127.0.0.0/8,::1/128}") String trustedProxies,
+            @Value("${rate.limit.ipv4.prefix.length:32}") int ipv4PrefixLength,
+            @Value("${rate.limit.ipv6.prefix.length:64}") int ipv6PrefixLength) {
+        if (ipv4PrefixLength < 0 || ipv4PrefixLength > 32 || ipv6PrefixLength < 0 || ipv6PrefixLength > 128) {
+            throw new IllegalArgumentException("Invalid rate limit prefix length: IPv4 /" + ipv4PrefixLength
+                    + ", IPv6 /" + ipv6PrefixLength);
+        }
+        this.ipv4PrefixLength = ipv4PrefixLength + IpAddressUtil.IPV4_MAPPED_PREFIX;
+        this.ipv6PrefixLength = ipv6PrefixLength;
+
+        long[] cidr = new long[3];
+        for (String entry : trustedProxies.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!IpAddressUtil.parseCidr(trimmed, cidr)) {
+                throw new IllegalArgumentException("Invalid trusted proxy CIDR: " + trimmed);
+            }
+            this.trustedProxies.add(cidr[0], cidr[1], (int) cidr[2]);
+        }
+        log.info("Trusting forwarding headers from {} proxy range(s); keying IPv4 by /{} and IPv6 by /{}",
+                this.trustedProxies.size(), ipv4PrefixLength, ipv6PrefixLength);
+    }
+
+    /**
+     * Resolve the rate limiting key for a request
+     *
+     * @param request The HTTP servlet request
+     * @return The client key, masked to the configured subnet size
+     */
+    public ClientKey resolve(HttpServletRequest request) {
+        long[] address = SCRATCH.get();
+
+        if (!IpAddressUtil.parse(request.getRemoteAddr(), address)) {
+            // Servlet containers always report a numeric peer address; anything else cannot be a
+            // trusted proxy, and all such requests share one rate limit
+            log.warn("Unparseable peer address: {}", request.getRemoteAddr());
+            return UNPARSEABLE_PEER;
+        }
+
+        if (isTrustedProxy(address[0], address[1])) {
+            long peerHigh = address[0];
+            long peerLow = address[1];
+            if (!resolveForwardedFor(request.getHeader(X_FORWARDED_FOR), address)
+                    && !resolveSingle(request.getHeader(X_REAL_IP), address)) {
+                // A rejected header may have left a trusted hop behind; key by the peer instead
+                address[0] = peerHigh;
+                address[1] = peerLow;
+            }
+        }
+
+        return toKey(address[0], address[1]);
+    }
+
+    /**
+     * @return true if the address belongs to a configured trusted proxy
+     */
+    public boolean isTrustedProxy(long high, long low) {
+        return trustedProxies.contains(high, low);
+    }
+
+    /**
+     * Mask an address to the configured subnet size and wrap it as a key
+     */
+    public ClientKey toKey(long high, long low) {
+        int prefix = IpAddressUtil.isIpv4Mapped(high, low) ? ipv4PrefixLength : ipv6PrefixLength;
+        return new ClientKey(high, low, prefix);
+    }
+
+    /**
+     * Walk X-Forwarded-For right to left and take the first hop that is not a trusted proxy.
+     * If every hop is trusted the leftmost one is used. A hop that cannot be parsed rejects the
+     * whole header, even after trusted hops, since the client it stands for is unknown.
+     *
+     * @return true if the header yielded an address (written to {@code address}); on false,
+     *         {@code address} may hold a trusted hop and must not be used
+     */
+    private boolean resolveForwardedFor(String header, long[] address) {
+        if (header == null || header.isEmpty()) {
+            return false;
+        }
+        boolean found = false;
+        int end = header.length();
+        while (end > 0) {
+            int comma = header.lastIndexOf(',', end - 1);
+            // parse() only writes on success, so an empty hop leaves the last good one in place
+            if (IpAddressUtil.parse(header, comma + 1, end, address)) {
+                found = true;
+                if (!isTrustedProxy(address[0], address[1])) {
+                    return true;
+                }
+            } else if (comma + 1 < end && !isBlank(header, comma + 1, end)) {
+                // Garbage in the chain: stop rather than trust anything to its left, and do not
+                // settle for the trusted hop to its right either
+                log.debug("Ignoring X-Forwarded-For with an unparseable hop: {}", header);
+                return false;
+            }
+            end = comma;
+        }
+        return found;
+    }
+
+    private boolean resolveSingle(String header, long[] address) {
+        return header != null && IpAddressUtil.parse(header, address);
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
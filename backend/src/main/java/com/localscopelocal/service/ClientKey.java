@@ -0,0 +1,80 @@
+package com.localscopelocal.service;
+
+/**
+ * Compact identity of a client for rate limiting: the client address (or its subnet)
+ * as two primitive longs plus the prefix length it was masked to.
+ */
+public final class ClientKey {
+
+    private final long high;
+    private final long low;
+    private final int prefixLength;
+
+    public ClientKey(long high, long low, int prefixLength) {
+        this.high = high & IpAddressUtil.maskHigh(prefixLength);
+        this.low = low & IpAddressUtil.maskLow(prefixLength);
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Key for a single address (no subnet grouping)
+     *
+     * @param address IPv4 or IPv6 address text
+     * @return The key, or null if the address cannot be parsed
+     */
+    public static ClientKey of(String address) {
+        long[] parsed = new long[2];
+        if (!IpAddressUtil.parse(address, parsed)) {
+            return null;
+        }
+        return new ClientKey(parsed[0], parsed[1], 128);
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    public boolean isIpv4() {
+        return IpAddressUtil.isIpv4Mapped(high, low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClientKey)) {
+            return false;
+        }
+        ClientKey other = (ClientKey) o;
+        return high == other.high && low == other.low && prefixLength == other.prefixLength;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 32;
+        return (int) h * 31 + prefixLength;
+    }
+
+    /**
+     * @return The address, with "/n" appended when the key covers a subnet
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(43);
+        IpAddressUtil.appendTo(sb, high, low);
+        if (prefixLength < 128) {
+            sb.append('/').append(isIpv4() ? prefixLength - IpAddressUtil.IPV4_MAPPED_PREFIX : prefixLength);
+        }
+        return sb.toString();
+    }
+}
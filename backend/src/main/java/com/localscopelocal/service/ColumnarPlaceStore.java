@@ -0,0 +1,453 @@
+package com.localscopelocal.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Compact in-memory copy of every cached place for spatial scans across all queries.
+ *
+ * Places are held column-wise in primitive arrays: coordinates in double[], ratings in float[]
+ * (NaN when unrated), primary types dictionary-encoded in short[], and ids packed into one
+ * byte[]. That is roughly 55 bytes per place, so 10M places fit in about 550 MB, against
+ * several KB each as Place entities.
+ *
+ * Rows are sorted in Z-order (Morton order) of their coordinates, so places that are close
+ * together are mostly close in the arrays too. Rows are grouped in fixed-size blocks with a
+ * bounding box each; a scan skips blocks outside the search circle's bounding box and runs a
+ * tight distance loop over the rest, in parallel for large regions.
+ *
+ * The store is an immutable snapshot rebuilt from the Place table on a schedule and swapped
+ * in atomically, so scans never lock.
+ */
+@Component
+public class ColumnarPlaceStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarPlaceStore.class);
+
+    static final int BLOCK_SIZE = 1024;
+
+    // Z-order keys use 20 bits per coordinate (about 20 m of latitude) and leave 24 bits
+    // for the row index when sorting, which caps a store at 16.7M places
+    private static final int MORTON_BITS = 20;
+    static final int MAX_PLACES = 1 << (64 - 2 * MORTON_BITS);
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * GeoUtils.EARTH_RADIUS_METERS;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${places.columnar.enabled:false}")
+    private boolean enabled;
+
+    @Value("${places.columnar.parallel-min-blocks:64}")
+    private int parallelMinBlocks = 64;
+
+    private volatile Columns columns = Columns.EMPTY;
+
+    @Autowired
+    public ColumnarPlaceStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rebuild the store from the Place table and swap it in
+     */
+    @Scheduled(initialDelayString = "${places.columnar.initial-delay-ms:5000}",
+            fixedDelayString = "${places.columnar.rebuild-interval-ms:60000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Builder builder = new Builder();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, latitude, longitude, rating, primary_type FROM place"
+                            + " WHERE latitude IS NOT NULL AND longitude IS NOT NULL",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(1000);
+            return statement;
+        }, rs -> {
+            builder.add(rs.getString(1), rs.getDouble(2), rs.getDouble(3),
+                    rs.getObject(4, Double.class), rs.getString(5));
+        });
+        replace(builder.build());
+        log.info("Rebuilt columnar place store with {} places ({} bytes) in {} ms",
+                columns.size, columns.getBytes(), System.currentTimeMillis() - start);
+    }
+
+    void replace(Columns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Places within a radius, nearest first
+     *
+     * @param types Primary types to keep, or null/empty for all
+     * @param limit Maximum number of places to return
+     */
+    public List<NearbyPlace> findWithin(double latitude, double longitude, double radiusMeters,
+                                  Collection<String> types, int limit) {
+        Columns snapshot = columns;
+        boolean[] allowedTypes = null;
+        if (types != null && !types.isEmpty()) {
+            allowedTypes = new boolean[snapshot.typeNames.length];
+            boolean any = false;
+            for (String type : types) {
+                Integer code = snapshot.typeCodes.get(type);
+                if (code != null) {
+                    allowedTypes[code] = true;
+                    any = true;
+                }
+            }
+            if (!any) {
+                return new ArrayList<>();
+            }
+        }
+
+        // Bounding box of the circle, for block pruning, split at the antimeridian as
+        // PlaceGeoSearchService does; near the poles the circle spans every longitude
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double dLon = cosLat > dLat / 90 ? Math.min(180, dLat / cosLat) : 180;
+        double minLat = latitude - dLat;
+        double maxLat = latitude + dLat;
+        double minLon = longitude - dLon;
+        double maxLon = longitude + dLon;
+        double[] lonRanges;
+        if (maxLon - minLon >= 360) {
+            lonRanges = new double[] {-180, 180};
+        } else if (minLon < -180) {
+            lonRanges = new double[] {minLon + 360, 180, -180, maxLon};
+        } else if (maxLon > 180) {
+            lonRanges = new double[] {minLon, 180, -180, maxLon - 360};
+        } else {
+            lonRanges = new double[] {minLon, maxLon};
+        }
+
+        int[] candidates = new int[snapshot.blockCount];
+        int candidateCount = 0;
+        for (int block = 0; block < snapshot.blockCount; block++) {
+            if (snapshot.blockMaxLat[block] < minLat || snapshot.blockMinLat[block] > maxLat) {
+                continue;
+            }
+            for (int range = 0; range < lonRanges.length; range += 2) {
+                if (snapshot.blockMaxLon[block] >= lonRanges[range] && snapshot.blockMinLon[block] <= lonRanges[range + 1]) {
+                    candidates[candidateCount++] = block;
+                    break;
+                }
+            }
+        }
+
+        double radiusSquared = radiusMeters * radiusMeters;
+        boolean[] typeFilter = allowedTypes;
+        Hits hits;
+        if (candidateCount >= parallelMinBlocks) {
+            int[] blocks = Arrays.copyOf(candidates, candidateCount);
+            hits = IntStream.range(0, candidateCount).parallel()
+                    .mapToObj(i -> snapshot.scanBlock(blocks[i], latitude, longitude, cosLat, radiusSquared, typeFilter))
+                    .reduce(Hits.EMPTY, Hits::concat);
+        } else {
+            hits = Hits.EMPTY;
+            for (int i = 0; i < candidateCount; i++) {
+                hits = Hits.concat(hits, snapshot.scanBlock(candidates[i], latitude, longitude, cosLat, radiusSquared, typeFilter));
+            }
+        }
+
+        int[] best = PlaceRanker.selectBest(hits.distancesSquared, Math.min(limit, hits.size));
+        List<NearbyPlace> matches = new ArrayList<>(best.length);
+        for (int hit : best) {
+            int row = hits.rows[hit];
+            matches.add(snapshot.match(row, Math.sqrt(hits.distancesSquared[hit])));
+        }
+        return matches;
+    }
+
+    /**
+     * Size and build time of the current snapshot for the admin API
+     */
+    public Map<String, Object> getStats() {
+        Columns snapshot = columns;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("places", snapshot.size);
+        stats.put("blocks", snapshot.blockCount);
+        stats.put("types", snapshot.typeNames.length);
+        stats.put("bytes", snapshot.getBytes());
+        stats.put("builtAt", snapshot.builtAtMillis);
+        return stats;
+    }
+
+    /**
+     * Rows and squared distances matched by a scan
+     */
+    private static final class Hits {
+        static final Hits EMPTY = new Hits(new int[0], new double[0], 0);
+
+        final int[] rows;
+        final double[] distancesSquared;
+        final int size;
+
+        Hits(int[] rows, double[] distancesSquared, int size) {
+            this.rows = rows;
+            this.distancesSquared = distancesSquared;
+            this.size = size;
+        }
+
+        static Hits concat(Hits a, Hits b) {
+            if (b.size == 0) {
+                return a;
+            }
+            if (a.size == 0) {
+                return b;
+            }
+            int[] rows = Arrays.copyOf(a.rows, a.size + b.size);
+            double[] distances = Arrays.copyOf(a.distancesSquared, a.size + b.size);
+            System.arraycopy(b.rows, 0, rows, a.size, b.size);
+            System.arraycopy(b.distancesSquared, 0, distances, a.size, b.size);
+            return new Hits(rows, distances, a.size + b.size);
+        }
+    }
+
+    /**
+     * Immutable column arrays of one build
+     */
+    static final class Columns {
+        static final Columns EMPTY = new Builder().build();
+
+        final int size;
+        final double[] latitudes;
+        final double[] longitudes;
+        final float[] ratings;
+        final short[] types;
+        final String[] typeNames;
+        final Map<String, Integer> typeCodes;
+        final byte[] idBytes;
+        final int[] idOffsets;
+        final int blockCount;
+        final double[] blockMinLat;
+        final double[] blockMaxLat;
+        final double[] blockMinLon;
+        final double[] blockMaxLon;
+        final long builtAtMillis = System.currentTimeMillis();
+
+        Columns(int size, double[] latitudes, double[] longitudes, float[] ratings, short[] types,
+                String[] typeNames, byte[] idBytes, int[] idOffsets) {
+            this.size = size;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.ratings = ratings;
+            this.types = types;
+            this.typeNames = typeNames;
+            this.idBytes = idBytes;
+            this.idOffsets = idOffsets;
+            this.typeCodes = new HashMap<>();
+            for (int i = 0; i < typeNames.length; i++) {
+                typeCodes.put(typeNames[i], i);
+            }
+
+            this.blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            this.blockMinLat = new double[blockCount];
+            this.blockMaxLat = new double[blockCount];
+            this.blockMinLon = new double[blockCount];
+            this.blockMaxLon = new double[blockCount];
+            for (int block = 0; block < blockCount; block++) {
+                double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+                double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+                int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+                for (int row = block * BLOCK_SIZE; row < end; row++) {
+                    minLat = Math.min(minLat, latitudes[row]);
+                    maxLat = Math.max(maxLat, latitudes[row]);
+                    minLon = Math.min(minLon, longitudes[row]);
+                    maxLon = Math.max(maxLon, longitudes[row]);
+                }
+                blockMinLat[block] = minLat;
+                blockMaxLat[block] = maxLat;
+                blockMinLon[block] = minLon;
+                blockMaxLon[block] = maxLon;
+            }
+        }
+
+        /**
+         * Distance loop over one block; the equirectangular distance is computed inline
+         * with the cosine of the search latitude hoisted out of the loop
+         */
+        Hits scanBlock(int block, double latitude, double longitude, double cosLat,
+                       double radiusSquared, boolean[] allowedTypes) {
+            int start = block * BLOCK_SIZE;
+            int end = Math.min(size, start + BLOCK_SIZE);
+            int[] rows = null;
+            double[] distances = null;
+            int count = 0;
+            double lonScale = cosLat * METERS_PER_DEGREE;
+            for (int row = start; row < end; row++) {
+                double dLon = longitudes[row] - longitude;
+                // The shorter way round, for circles across the antimeridian
+                if (dLon > 180) {
+                    dLon -= 360;
+                } else if (dLon < -180) {
+                    dLon += 360;
+                }
+                double x = dLon * lonScale;
+                double y = (latitudes[row] - latitude) * METERS_PER_DEGREE;
+                double d2 = x * x + y * y;
+                if (d2 <= radiusSquared && (allowedTypes == null || (types[row] >= 0 && allowedTypes[types[row]]))) {
+                    if (rows == null) {
+                        rows = new int[end - row];
+                        distances = new double[end - row];
+                    }
+                    rows[count] = row;
+                    distances[count++] = d2;
+                }
+            }
+            return count == 0 ? Hits.EMPTY : new Hits(Arrays.copyOf(rows, count), Arrays.copyOf(distances, count), count);
+        }
+
+        NearbyPlace match(int row, double distanceMeters) {
+            String id = new String(idBytes, idOffsets[row], idOffsets[row + 1] - idOffsets[row], StandardCharsets.UTF_8);
+            float rating = ratings[row];
+            // Via the float's shortest decimal form, so 4.3f reads back as 4.3 rather than 4.300000190734863
+            return new NearbyPlace(id, latitudes[row], longitudes[row], Float.isNaN(rating) ? null : Double.valueOf(Float.toString(rating)),
+                    types[row] >= 0 ? typeNames[types[row]] : null, distanceMeters);
+        }
+
+        long getBytes() {
+            return (long) size * (8 + 8 + 4 + 2 + 4) + idBytes.length + (long) blockCount * 32;
+        }
+    }
+
+    /**
+     * Accumulates places in arrival order, then sorts them into Z-order columns
+     */
+    static final class Builder {
+        private int size;
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+        private float[] ratings = new float[1024];
+        private short[] types = new short[1024];
+        private String[] ids = new String[1024];
+        private final Map<String, Integer> typeCodes = new LinkedHashMap<>();
+
+        void add(String id, double latitude, double longitude, Double rating, String primaryType) {
+            if (size == MAX_PLACES) {
+                throw new IllegalStateException("Columnar place store is limited to " + MAX_PLACES + " places");
+            }
+            if (size == latitudes.length) {
+                int capacity = size + (size >> 1);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+                types = Arrays.copyOf(types, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            ratings[size] = rating != null ? rating.floatValue() : Float.NaN;
+            types[size] = primaryType != null ? typeCode(primaryType) : -1;
+            ids[size] = id;
+            size++;
+        }
+
+        private short typeCode(String type) {
+            Integer code = typeCodes.get(type);
+            if (code == null) {
+                if (typeCodes.size() == Short.MAX_VALUE) {
+                    return -1;
+                }
+                code = typeCodes.size();
+                typeCodes.put(type, code);
+            }
+            return code.shortValue();
+        }
+
+        Columns build() {
+            // Sort by Morton key with the row index packed into the low bits
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (morton(latitudes[i], longitudes[i]) << (64 - 2 * MORTON_BITS)) | i;
+            }
+            // Unsigned order: the top Morton bit lands in the sign bit
+            for (int i = 0; i < size; i++) {
+                keys[i] ^= Long.MIN_VALUE;
+            }
+            Arrays.sort(keys);
+
+            double[] sortedLat = new double[size];
+            double[] sortedLon = new double[size];
+            float[] sortedRatings = new float[size];
+            short[] sortedTypes = new short[size];
+            int[] idOffsets = new int[size + 1];
+            byte[][] idUtf8 = new byte[size][];
+            int idLength = 0;
+            long indexMask = (1L << (64 - 2 * MORTON_BITS)) - 1;
+            for (int i = 0; i < size; i++) {
+                int from = (int) (keys[i] & indexMask);
+                sortedLat[i] = latitudes[from];
+                sortedLon[i] = longitudes[from];
+                sortedRatings[i] = ratings[from];
+                sortedTypes[i] = types[from];
+                idUtf8[i] = ids[from].getBytes(StandardCharsets.UTF_8);
+                idLength += idUtf8[i].length;
+            }
+            byte[] idBytes = new byte[idLength];
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                idOffsets[i] = offset;
+                System.arraycopy(idUtf8[i], 0, idBytes, offset, idUtf8[i].length);
+                offset += idUtf8[i].length;
+            }
+            idOffsets[size] = offset;
+
+            return new Columns(size, sortedLat, sortedLon, sortedRatings, sortedTypes,
+                    typeCodes.keySet().toArray(new String[0]), idBytes, idOffsets);
+        }
+
+        /**
+         * Interleave the quantized coordinates into a 40-bit Z-order key
+         */
+        static long morton(double latitude, double longitude) {
+            long y = quantize(latitude, -90, 180);
+            long x = quantize(longitude, -180, 360);
+            return spread(x) | (spread(y) << 1);
+        }
+
+        private static long quantize(double value, double min, double range) {
+            long max = (1L << MORTON_BITS) - 1;
+            long q = (long) ((value - min) / range * (max + 1));
+            return Math.max(0, Math.min(max, q));
+        }
+
+        /**
+         * Spread the low 20 bits of v so there is a zero bit between each of them
+         */
+        private static long spread(long v) {
+            v &= 0xFFFFFL;
+            v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+            v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+            v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+            v = (v | (v << 2)) & 0x3333333333333333L;
+            v = (v | (v << 1)) & 0x5555555555555555L;
+            return v;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.localscopelocal.service;
+
+/**
+ * Thrown when a request's deadline passes before a stage of its search could finish. The
+ * search is then answered from the cache rather than failed, and the key does not back off.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
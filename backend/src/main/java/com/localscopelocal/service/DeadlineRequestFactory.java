@@ -0,0 +1,60 @@
+package com.localscopelocal.service;
+
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.function.Supplier;
+
+/**
+ * Request factory with fixed connect and read timeouts, shortened for calls made
+ * {@link #within(RequestDeadline, Supplier) within} a deadline to the time it leaves. The read
+ * timeout applies to each read, so a response trickling in can overrun the deadline slightly.
+ */
+class DeadlineRequestFactory extends SimpleClientHttpRequestFactory {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    DeadlineRequestFactory(int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        setConnectTimeout(connectTimeoutMillis);
+        setReadTimeout(readTimeoutMillis);
+    }
+
+    /**
+     * Make the calls of this thread within the deadline
+     */
+    static <T> T within(RequestDeadline deadline, Supplier<T> calls) {
+        RequestDeadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return calls.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+        super.prepareConnection(connection, httpMethod);
+        RequestDeadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isBounded()) {
+            int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, deadline.remainingMillis()));
+            connection.setConnectTimeout(shorten(connectTimeoutMillis, remaining));
+            connection.setReadTimeout(shorten(readTimeoutMillis, remaining));
+        }
+    }
+
+    // A timeout of 0 means none
+    private static int shorten(int timeoutMillis, int remainingMillis) {
+        return timeoutMillis <= 0 ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+    }
+}
@@ -0,0 +1,111 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.PlaceSearchQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Short-lived negative cache for searches Google answered with no places (oceans, deserts,
+ * bad coordinates). Empty results are never saved as rows, so without this every repeat of
+ * such a search would go upstream again.
+ *
+ * Entries expire after a short TTL so that newly listed places show up eventually.
+ * Upstream failures are not cached here; see {@link UpstreamErrorBackoff}.
+ */
+@Component
+public class EmptyResultCache {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    @Value("${places.cache.negative.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    @Value("${places.cache.negative.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    /**
+     * Whether the query, or the all-types search of a type-filtered query, is known to be empty
+     */
+    public boolean contains(PlaceSearchQuery query) {
+        long now = System.currentTimeMillis();
+        boolean empty = isLive(query.createCacheKey(), now)
+                || (query.hasIncludedTypes() && isLive(query.withoutIncludedTypes().createCacheKey(), now));
+        if (empty) {
+            hits.increment();
+        }
+        return empty;
+    }
+
+    private boolean isLive(String key, long now) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.expiresAtMillis <= now) {
+            entries.remove(key, entry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remember that Google returned no places for the query
+     */
+    public void put(PlaceSearchQuery query) {
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+        }
+        PlaceSearchQuery key = new PlaceSearchQuery(query.getLongitude(), query.getLatitude(), query.getRadius());
+        key.setIncludedTypes(query.getIncludedTypes());
+        entries.put(query.createCacheKey(), new Entry(key, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    /**
+     * Remove the entries whose query matches the predicate
+     *
+     * @return Number of entries removed
+     */
+    public int invalidateIf(Predicate<PlaceSearchQuery> predicate) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> predicate.test(entry.query));
+        return before - entries.size();
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    private static final class Entry {
+        private final PlaceSearchQuery query;
+        private final long expiresAtMillis;
+
+        Entry(PlaceSearchQuery query, long expiresAtMillis) {
+            this.query = query;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
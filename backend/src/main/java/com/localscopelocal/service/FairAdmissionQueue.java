@@ -0,0 +1,395 @@
+package com.localscopelocal.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission in front of the global rate limit, so the last part of the global budget is shared
+ * fairly instead of going to whoever asks fastest.
+ *
+ * Below the soft limit, requests are checked against {@link RateLimitService} at once. Above it,
+ * they wait in a short, bounded queue and a background thread admits them at a pace that spreads
+ * the remaining global budget over the rest of the window. Waiting requests are admitted by deficit
+ * round robin over clients, so a client with many queued requests gets the same share as one with a
+ * single request. Cache hits get priority without breaking that fairness: a hit costs one unit of a
+ * client's turn and a request needing an upstream call costs the whole turn, and each client's hits
+ * go before its other requests. A request still queued after the maximum wait, or arriving when the
+ * queue is full, is shed with a rate-limited result. One still queued past its own deadline is shed
+ * too, unless the rate limits would admit it at that point; then it is admitted to a cached answer.
+ */
+@Component
+public class FairAdmissionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(FairAdmissionQueue.class);
+
+    private final RateLimitService rateLimitService;
+
+    @Value("${rate.limit.admission.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${rate.limit.admission.capacity:200}")
+    private int capacity = 200;
+
+    @Value("${rate.limit.admission.max-wait-ms:2000}")
+    private long maxWaitMillis = 2000;
+
+    @Value("${rate.limit.admission.soft-limit-ratio:0.8}")
+    private double softLimitRatio = 0.8;
+
+    @Value("${rate.limit.admission.tick-ms:10}")
+    private long tickMillis = 10;
+
+    // Deficit added per turn, and the cost of a request that is not a cache hit (a hit costs 1)
+    @Value("${rate.limit.admission.miss-cost:2}")
+    private int missCost = 2;
+
+    // Guarded by this
+    private final Map<ClientKey, Flow> flows = new HashMap<>();
+    private final ArrayDeque<Flow> activeFlows = new ArrayDeque<>();
+    private volatile int depth; // Written under the lock, read without it on the fast path
+    private long nextAdmissionMillis;
+
+    private ScheduledExecutorService dispatcher;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shedDeadline = new LongAdder();
+    private final LongAdder shedRequestDeadline = new LongAdder();
+    private final LongAdder shedOverflow = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final AtomicLong maxWaitObservedMillis = new AtomicLong();
+
+    @Autowired
+    public FairAdmissionQueue(RateLimitService rateLimitService) {
+        this.rateLimitService = rateLimitService;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "places-admission");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+        List<Waiter> drained;
+        synchronized (this) {
+            drained = drainAll();
+        }
+        for (Waiter waiter : drained) {
+            shed(waiter, shedOverflow);
+            waiter.complete();
+        }
+    }
+
+    /**
+     * Admit a request against the rate limits, waiting in the queue when the global limit is near
+     *
+     * @param client The client making the request
+     * @param cacheHit Whether the request can be answered from memory, which puts it ahead of the others
+     * @return Future completing with the rate limit result; never completes exceptionally
+     */
+    public CompletableFuture<RateLimitService.RateLimitResult> admit(ClientKey client, boolean cacheHit) {
+        return admit(client, cacheHit, RequestDeadline.none());
+    }
+
+    /**
+     * {@link #admit(ClientKey, boolean)} for a request with a deadline. When the deadline passes before
+     * the maximum wait does, the request is checked against the rate limits once more: if allowed, the
+     * result is marked {@link RateLimitService.RateLimitResult#isDeadlineExceeded()}, otherwise it is shed
+     */
+    public CompletableFuture<RateLimitService.RateLimitResult> admit(ClientKey client, boolean cacheHit,
+                                                                     RequestDeadline deadline) {
+        if (!enabled || !rateLimitService.isEnabled()) {
+            return CompletableFuture.completedFuture(rateLimitService.isRequestAllowed(client));
+        }
+        if (depth == 0 && !isNearGlobalLimit()) {
+            RateLimitService.RateLimitResult result = rateLimitService.isRequestAllowed(client);
+            if (!result.isGlobalLimited()) {
+                return CompletableFuture.completedFuture(result);
+            }
+        }
+        synchronized (this) {
+            // Requests over their own IP limit are rejected at once rather than holding a queue slot
+            RateLimitService.RateLimitResult ipResult = rateLimitService.checkIpRateLimit(client);
+            if (!ipResult.isAllowed()) {
+                return CompletableFuture.completedFuture(ipResult);
+            }
+            long now = System.currentTimeMillis();
+            Waiter waiter = new Waiter(client, now, Math.min(now + maxWaitMillis, deadline.getDeadlineMillis()));
+            if (depth >= capacity) {
+                shed(waiter, shedOverflow);
+                waiter.complete();
+                return waiter.future;
+            }
+            Flow flow = flows.get(client);
+            if (flow == null) {
+                flow = new Flow(client);
+                flows.put(client, flow);
+                activeFlows.addLast(flow);
+            }
+            (cacheHit ? flow.hits : flow.misses).addLast(waiter);
+            depth++;
+            queued.increment();
+            return waiter.future;
+        }
+    }
+
+    private boolean isNearGlobalLimit() {
+        return rateLimitService.getGlobalCount() >= rateLimitService.getGlobalLimit() * softLimitRatio;
+    }
+
+    /**
+     * Shed expired waiters, then admit as many as the pacing allows. Futures are completed
+     * after the lock is released, since completing one runs the rest of its request.
+     */
+    void dispatch() {
+        List<Waiter> done = new ArrayList<>();
+        try {
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                shedExpired(now, done);
+                while (depth > 0 && mayAdmit(now)) {
+                    Waiter waiter = peekNext();
+                    RateLimitService.RateLimitResult result = rateLimitService.isRequestAllowed(waiter.client);
+                    if (!result.isAllowed() && result.isGlobalLimited()) {
+                        break; // Wait for the window to reset
+                    }
+                    removeNext();
+                    long waited = now - waiter.enqueuedAtMillis;
+                    totalWaitMillis.add(waited);
+                    maxWaitObservedMillis.accumulateAndGet(waited, Math::max);
+                    admitted.increment();
+                    waiter.result = result;
+                    done.add(waiter);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Admission dispatch failed", e);
+        }
+        for (Waiter waiter : done) {
+            waiter.complete();
+        }
+    }
+
+    /**
+     * Above the soft limit, the global budget left in the window is spread evenly over the time left
+     */
+    private boolean mayAdmit(long now) {
+        long windowRemaining = rateLimitService.getGlobalWindowRemainingMillis();
+        if (windowRemaining <= 0 || !isNearGlobalLimit()) {
+            return true;
+        }
+        int remaining = rateLimitService.getGlobalCapacity() - rateLimitService.getGlobalCount();
+        if (remaining <= 0 || now < nextAdmissionMillis) {
+            return false;
+        }
+        nextAdmissionMillis = now + windowRemaining / remaining;
+        return true;
+    }
+
+    /**
+     * The next waiter to admit. Deficit round robin: the flow at the front gets one quantum per turn
+     * and is served while its deficit covers its head request, then goes to the back.
+     */
+    private Waiter peekNext() {
+        Flow flow = activeFlows.peekFirst();
+        if (!flow.inTurn) {
+            flow.startTurn(missCost);
+        }
+        while (flow.deficit < flow.headCost(missCost)) {
+            flow.inTurn = false;
+            activeFlows.addLast(activeFlows.pollFirst());
+            flow = activeFlows.peekFirst();
+            flow.startTurn(missCost);
+        }
+        return flow.head();
+    }
+
+    private void removeNext() {
+        depth--;
+        Flow flow = activeFlows.peekFirst();
+        flow.deficit -= flow.headCost(missCost);
+        flow.removeHead();
+        if (flow.isEmpty()) {
+            activeFlows.pollFirst();
+            flows.remove(flow.client);
+        }
+    }
+
+    /**
+     * Waiters expire at the maximum wait or their own deadline, whichever is first, so expired ones
+     * may be anywhere in a queue; the queue is bounded by its capacity
+     */
+    private void shedExpired(long now, List<Waiter> done) {
+        Iterator<Flow> iterator = activeFlows.iterator();
+        while (iterator.hasNext()) {
+            Flow flow = iterator.next();
+            for (ArrayDeque<Waiter> waiters : Arrays.asList(flow.hits, flow.misses)) {
+                Iterator<Waiter> queued = waiters.iterator();
+                while (queued.hasNext()) {
+                    Waiter waiter = queued.next();
+                    if (waiter.expiresAtMillis <= now) {
+                        queued.remove();
+                        depth--;
+                        boolean requestDeadline = waiter.expiresAtMillis < waiter.enqueuedAtMillis + maxWaitMillis;
+                        done.add(requestDeadline ? shedRequestDeadline(waiter) : shed(waiter, shedDeadline));
+                    }
+                }
+            }
+            if (flow.isEmpty()) {
+                iterator.remove();
+                flows.remove(flow.client);
+            }
+        }
+    }
+
+    private List<Waiter> drainAll() {
+        List<Waiter> drained = new ArrayList<>();
+        for (Flow flow : activeFlows) {
+            drained.addAll(flow.hits);
+            drained.addAll(flow.misses);
+        }
+        activeFlows.clear();
+        flows.clear();
+        depth = 0;
+        return drained;
+    }
+
+    /**
+     * A waiter whose own deadline passed is admitted to a cached answer, marked deadline exceeded,
+     * if the rate limits would admit it now, and otherwise shed like any other
+     */
+    private Waiter shedRequestDeadline(Waiter waiter) {
+        RateLimitService.RateLimitResult result = rateLimitService.isRequestAllowed(waiter.client);
+        if (!result.isAllowed()) {
+            return shed(waiter, shedRequestDeadline);
+        }
+        shedRequestDeadline.increment();
+        log.warn("Deadline of a request from {} passed in the admission queue", waiter.client);
+        waiter.result = new RateLimitService.RateLimitResult(true, result.getRemainingIpRequests(),
+                result.getRemainingGlobalRequests(), result.getMessage(), false, true);
+        return waiter;
+    }
+
+    private Waiter shed(Waiter waiter, LongAdder counter) {
+        counter.increment();
+        long waited = System.currentTimeMillis() - waiter.enqueuedAtMillis;
+        log.warn("Shedding request from {} after {} ms in the admission queue", waiter.client, waited);
+        waiter.result = new RateLimitService.RateLimitResult(false, 0, 0,
+                "The service is at capacity. Please try again shortly.", true);
+        return waiter;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Queue depth, admissions, shed requests and wait times for the admin API
+     */
+    public Map<String, Object> getMetrics() {
+        long admittedCount = admitted.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("depth", getDepth());
+        metrics.put("capacity", capacity);
+        metrics.put("queued", queued.sum());
+        metrics.put("admittedFromQueue", admittedCount);
+        metrics.put("shedDeadline", shedDeadline.sum());
+        metrics.put("shedRequestDeadline", shedRequestDeadline.sum());
+        metrics.put("shedOverflow", shedOverflow.sum());
+        metrics.put("averageWaitMillis", admittedCount == 0 ? 0 : totalWaitMillis.sum() / admittedCount);
+        metrics.put("maxWaitMillis", maxWaitObservedMillis.get());
+        metrics.put("maxWaitAllowedMillis", maxWaitMillis);
+        return metrics;
+    }
+
+    /**
+     * Requests of one client waiting for admission, cache hits first
+     */
+    private static final class Flow {
+        final ClientKey client;
+        final ArrayDeque<Waiter> hits = new ArrayDeque<>();
+        final ArrayDeque<Waiter> misses = new ArrayDeque<>();
+        int deficit;
+        boolean inTurn;
+
+        Flow(ClientKey client) {
+            this.client = client;
+        }
+
+        void startTurn(int quantum) {
+            deficit += quantum;
+            inTurn = true;
+        }
+
+        Waiter head() {
+            return hits.isEmpty() ? misses.peekFirst() : hits.peekFirst();
+        }
+
+        int headCost(int missCost) {
+            return hits.isEmpty() ? missCost : 1;
+        }
+
+        void removeHead() {
+            if (hits.isEmpty()) {
+                misses.pollFirst();
+            } else {
+                hits.pollFirst();
+            }
+        }
+
+        boolean isEmpty() {
+            return hits.isEmpty() && misses.isEmpty();
+        }
+    }
+
+    private static final class Waiter {
+        final ClientKey client;
+        final long enqueuedAtMillis;
+        final long expiresAtMillis;
+        final CompletableFuture<RateLimitService.RateLimitResult> future = new CompletableFuture<>();
+        RateLimitService.RateLimitResult result;
+
+        Waiter(ClientKey client, long enqueuedAtMillis, long expiresAtMillis) {
+            this.client = client;
+            this.enqueuedAtMillis = enqueuedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+}
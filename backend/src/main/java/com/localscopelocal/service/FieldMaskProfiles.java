@@ -0,0 +1,93 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.PlaceField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named field-mask profiles callers can select with the "fields" request parameter.
+ *
+ * "pins" asks only for what is needed to draw markers and is billed at a cheaper SKU;
+ * "details" is the full set the application always requested before profiles existed.
+ * The fields of each profile can be overridden in application.properties.
+ *
+ * Lookups of a single place by id have a field mask of their own, since they are billed as
+ * Place Details rather than Nearby Search.
+ */
+@Component
+public class FieldMaskProfiles {
+
+    private static final Logger log = LoggerFactory.getLogger(FieldMaskProfiles.class);
+
+    public static final String PINS = "pins";
+    public static final String DETAILS = "details";
+
+    private final Map<String, Integer> profiles;
+    private final String defaultProfile;
+    private final int lookupMask;
+
+    public FieldMaskProfiles(
+            @Value("${google.places.field-profile.pins:id,location}") String pinsFields,
+            @Value("${google.places.field-profile.details:id,displayName,formattedAddress,primaryType,websiteUri,rating,location}") String detailsFields,
+            @Value("${google.places.field-profile.default:details}") String defaultProfile,
+            @Value("${google.places.field-profile.lookup:id,displayName,formattedAddress,primaryType,websiteUri,rating,location}") String lookupFields) {
+        Map<String, Integer> configured = new LinkedHashMap<>();
+        configured.put(PINS, parseFields(PINS, pinsFields));
+        configured.put(DETAILS, parseFields(DETAILS, detailsFields));
+        this.profiles = Collections.unmodifiableMap(configured);
+
+        if (!profiles.containsKey(defaultProfile)) {
+            throw new IllegalArgumentException("Unknown default field profile: " + defaultProfile);
+        }
+        this.defaultProfile = defaultProfile;
+        this.lookupMask = parseFields("lookup", lookupFields);
+        log.info("Field mask profiles: pins={}, details={}, default={}, lookup={}",
+                PlaceField.toNearbySearchFieldMask(profiles.get(PINS)),
+                PlaceField.toNearbySearchFieldMask(profiles.get(DETAILS)), defaultProfile,
+                PlaceField.toPlaceDetailsFieldMask(lookupMask));
+    }
+
+    /**
+     * Resolve a profile name to its field mask
+     *
+     * @param name The profile name, or null for the default profile
+     * @return The field bit mask, or null if the profile is unknown
+     */
+    public Integer resolve(String name) {
+        return profiles.get(name == null || name.isEmpty() ? defaultProfile : name.toLowerCase());
+    }
+
+    public Map<String, Integer> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * @return The fields returned by a lookup by id
+     */
+    public int getLookupMask() {
+        return lookupMask;
+    }
+
+    private static int parseFields(String profile, String fields) {
+        // The id is always needed to cache, merge and look up places
+        int mask = PlaceField.ID.bit();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            PlaceField field = PlaceField.fromApiName(trimmed);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field '" + trimmed + "' in field profile " + profile);
+            }
+            mask |= field.bit();
+        }
+        return mask;
+    }
+}
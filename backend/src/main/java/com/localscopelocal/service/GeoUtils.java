@@ -0,0 +1,56 @@
+package com.localscopelocal.service;
+
+/**
+ * Distance calculations on coordinates in degrees
+ */
+public final class GeoUtils {
+
+    /** Mean earth radius in meters */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Distance from a fixed origin using the equirectangular approximation.
+     * Within the 50 km search radius the error is well below a meter per kilometer, and the cosine
+     * of the origin latitude is computed once by the caller, so a distance costs no trigonometry.
+     *
+     * @param originLat Latitude of the origin in degrees
+     * @param originLon Longitude of the origin in degrees
+     * @param cosOriginLat Math.cos(Math.toRadians(originLat))
+     * @return Distance in meters
+     */
+    public static double equirectangularMeters(double originLat, double originLon, double cosOriginLat,
+                                               double lat, double lon) {
+        double x = Math.toRadians(normalizeLongitudeDelta(lon - originLon)) * cosOriginLat;
+        double y = Math.toRadians(lat - originLat);
+        return EARTH_RADIUS_METERS * Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Great-circle distance by the haversine formula, exact on a spherical earth at any distance
+     *
+     * @return Distance in meters
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Map a longitude difference into [-180, 180] so searches across the antimeridian work
+     */
+    private static double normalizeLongitudeDelta(double delta) {
+        if (delta > 180) {
+            return delta - 360;
+        }
+        if (delta < -180) {
+            return delta + 360;
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,93 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.GeoHash;
+import com.localscopelocal.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills in the geohash of places cached before the column existed. Saves keep the geohash in step
+ * with the location, but rows already in a database that the schema update added the column to have
+ * none and are invisible to the geohash index until backfilled.
+ *
+ * Runs once after startup on a background thread, in batches each committed on its own, so the
+ * application serves while it runs; those rows are missing from indexed searches until it finishes.
+ */
+@Service
+public class GeohashBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeohashBackfillService.class);
+
+    private static final String SELECT_SQL = "SELECT id, latitude, longitude FROM place "
+            + "WHERE geohash IS NULL AND latitude IS NOT NULL AND longitude IS NOT NULL LIMIT ?";
+    // Only rows still without a geohash, so a place saved meanwhile keeps the one it was saved with
+    private static final String UPDATE_SQL = "UPDATE place SET geohash = ? WHERE id = ? AND geohash IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlaceRepository placeRepository;
+    private final int batchSize;
+
+    @Autowired
+    public GeohashBackfillService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  PlaceRepository placeRepository,
+                                  @Value("${places.geohash.backfill.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.placeRepository = placeRepository;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        Thread thread = new Thread(this::backfill, "geohash-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Compute and store the geohash of every located place that has none
+     *
+     * @return Number of places updated
+     */
+    public long backfill() {
+        long start = System.currentTimeMillis();
+        long updated = 0;
+        try {
+            // Through JPA first, which waits for the schema to exist when JPA bootstraps in the background
+            placeRepository.count();
+            int written;
+            do {
+                written = transactionTemplate.execute(status -> backfillBatch());
+                updated += written;
+            } while (written == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Geohash backfill stopped after {} places", updated, e);
+            return updated;
+        }
+        if (updated > 0) {
+            log.info("Backfilled the geohash of {} places in {} ms", updated, System.currentTimeMillis() - start);
+        }
+        return updated;
+    }
+
+    private int backfillBatch() {
+        List<Object[]> rows = jdbcTemplate.query(SELECT_SQL,
+                (rs, rowNum) -> new Object[] {
+                        GeoHash.of(rs.getDouble("latitude"), rs.getDouble("longitude")), rs.getString("id")},
+                batchSize);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+        }
+        return rows.size();
+    }
+}
@@ -5,6 +5,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceField;
 import com.localscopelocal.model.PlaceSearchQuery;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
@@ -15,12 +16,33 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service to interact with Google Places API (v1 - Nearby Search New)
@@ -36,59 +58,369 @@ public class GooglePlacesService {
     @Value("${google.places.api.url}")
     private String apiUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${google.places.details.api.url:https://places.googleapis.com/v1/places}")
+    private String detailsUrl;
 
-    // Define a default FieldMask to request specific fields
-    private static final String DEFAULT_FIELD_MASK = "places.id,places.displayName,places.formattedAddress,places.primaryType,places.websiteUri,places.rating,places.location";
+    private RestTemplate restTemplate = new RestTemplate();
+
+    // Bounds each call, which otherwise could hang for as long as Google leaves it open
+    @Value("${google.places.connect-timeout-ms:2000}")
+    private int connectTimeoutMillis = 2000;
+
+    @Value("${google.places.read-timeout-ms:10000}")
+    private int readTimeoutMillis = 10000;
+
+    // Retries of failed calls after the first attempt
+    @Value("${google.places.retry.max-retries:2}")
+    private int maxRetries = 2;
+
+    @Value("${google.places.retry.base-delay-ms:100}")
+    private long retryBaseDelayMillis = 100;
+
+    @Value("${google.places.retry.max-delay-ms:2000}")
+    private long retryMaxDelayMillis = 2000;
+
+    @Value("${google.places.retry.statuses:429,500,502,503,504}")
+    private int[] retryableStatuses = {429, 500, 502, 503, 504};
+
+    @Value("${google.places.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    // A call slower than this percentile of recent calls is hedged
+    @Value("${google.places.hedge.percentile:95}")
+    private double hedgePercentile = 95;
+
+    @Value("${google.places.hedge.min-delay-ms:50}")
+    private long hedgeMinDelayMillis = 50;
+
+    @Value("${google.places.hedge.pool-size:32}")
+    private int hedgePoolSize = 32;
+
+    // Retries and hedges together may add at most this share of extra calls, plus min-per-second
+    @Value("${google.places.retry-budget.ratio:0.1}")
+    private double retryBudgetRatio = 0.1;
+
+    @Value("${google.places.retry-budget.min-per-second:1}")
+    private int retryBudgetMinPerSecond = 1;
+
+    private UpstreamRetryBudget retryBudget = new UpstreamRetryBudget(retryBudgetRatio, retryBudgetMinPerSecond);
+    private final LatencyWindow latencies = new LatencyWindow();
+    private ExecutorService hedgeExecutor;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+    private final LongAdder deadlineExhausted = new LongAdder();
+
+    /** Most places Nearby Search returns for one request; a full page may be truncated */
+    public static final int MAX_RESULT_COUNT = 20;
+
+    @PostConstruct
+    public void start() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+        restTemplate = new RestTemplate(requestFactory);
+        retryBudget = new UpstreamRetryBudget(retryBudgetRatio, retryBudgetMinPerSecond);
+        if (!hedgeEnabled) {
+            return;
+        }
+        // Hedged attempts run here so the caller can wait on whichever answers first; rejected
+        // when full, in which case the call is made on the caller's thread without a hedge
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(hedgePoolSize, hedgePoolSize, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "places-hedge-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        hedgeExecutor = executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdown();
+        }
+    }
 
     /**
-     * Fetch nearby places from Google Places API (v1 - Nearby Search New)
+     * Fetch nearby places from Google Places API (v1 - Nearby Search New).
+     * Only the fields in the query's field mask are requested, so cheaper profiles are billed
+     * at a cheaper SKU. Calls failing with a retryable status are retried after a jittered
+     * delay, and slow calls may be hedged, both within the retry budget.
      *
-     * @param query The search query with location and radius
-     * @return List of Place objects representing nearby locations
+     * @param query The search query with location, radius and requested fields
+     * @return List of Place objects representing nearby locations; empty if Google found none
+     * @throws PlacesApiException if the call fails or the response cannot be parsed
      */
     public List<Place> fetchNearbyPlaces(PlaceSearchQuery query) {
+        return fetchNearbyPlaces(query, RequestDeadline.none());
+    }
+
+    /**
+     * {@link #fetchNearbyPlaces(PlaceSearchQuery)} within a deadline: a failed call is not retried
+     * when the deadline would pass before the retry is made. A call is never cut short by the
+     * deadline, since it is billed either way and its answer can still fill the cache.
+     */
+    public List<Place> fetchNearbyPlaces(PlaceSearchQuery query, RequestDeadline deadline) {
         log.info("Fetching places from Google API (v1) for query: {}", query);
 
+        return parseResponse(execute(HttpMethod.POST, apiUrl, createRequest(query), true, deadline), query);
+    }
+
+    /**
+     * Fetch one place by id from Google Places API (v1 - Place Details), with only the given fields.
+     * Retried like Nearby Search, but never hedged.
+     *
+     * @param placeId The place id, as returned by Nearby Search
+     * @param fieldMask The fields to request
+     * @return The place, or null if Google does not know the id
+     * @throws PlacesApiException if the call fails or the response cannot be parsed
+     */
+    public Place fetchPlaceDetails(String placeId, int fieldMask) {
+        log.info("Fetching place details from Google API (v1) for id: {}", placeId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Goog-Api-Key", apiKey);
+        headers.set("X-Goog-FieldMask", PlaceField.toPlaceDetailsFieldMask(fieldMask));
+        String body;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("X-Goog-Api-Key", apiKey);
-            headers.set("X-Goog-FieldMask", DEFAULT_FIELD_MASK);
+            body = execute(HttpMethod.GET, detailsUrl + "/" + placeId, new HttpEntity<>(headers), false,
+                    RequestDeadline.none());
+        } catch (PlacesApiException e) {
+            if (e.getCause() instanceof HttpClientErrorException.NotFound) {
+                return null;
+            }
+            throw e;
+        }
 
-            // Construct the request body
-            JsonObject requestBody = new JsonObject();
-            // Add includedTypes if you want to filter by type, e.g., ["restaurant"]
-            // requestBody.addProperty("includedTypes", "restaurant"); // Example
-            requestBody.addProperty("maxResultCount", 20); // Max results (up to 20)
+        try {
+            Place place = parsePlace(JsonParser.parseString(body).getAsJsonObject());
+            place.setCreatedAt(LocalDateTime.now());
+            place.setFieldMask(fieldMask);
+            return place;
+        } catch (Exception e) {
+            log.error("Error parsing Google Place Details (v1) response: {}", body, e);
+            throw new PlacesApiException("Could not parse Google Place Details response", e);
+        }
+    }
 
-            JsonObject locationRestriction = new JsonObject();
-            JsonObject circle = new JsonObject();
-            JsonObject center = new JsonObject();
-            center.addProperty("latitude", query.getLatitude());
-            center.addProperty("longitude", query.getLongitude());
-            circle.add("center", center);
-            circle.addProperty("radius", query.getRadius().doubleValue());
-            locationRestriction.add("circle", circle);
-            requestBody.add("locationRestriction", locationRestriction);
+    /**
+     * Make a call, retrying failures with a retryable status within the retry budget
+     *
+     * @param hedgeable Whether a slow attempt may be hedged; the hedge delay is learned from these calls only
+     * @return The response body
+     * @throws PlacesApiException if every attempt failed
+     */
+    private String execute(HttpMethod method, String url, HttpEntity<String> entity, boolean hedgeable,
+                           RequestDeadline deadline) {
+        retryBudget.recordRequest();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return hedgeable ? exchange(method, url, entity) : call(method, url, entity, false);
+            } catch (Exception e) {
+                boolean retryable = isRetryable(e);
+                if (!retryable || attempt >= maxRetries) {
+                    log.error("Error fetching places from Google API (v1)", e);
+                    // Only a 400 (INVALID_ARGUMENT) blames the search; 401, 403 and 404 mean the key or
+                    // project is wrong, which every search would hit, so they back off like outages
+                    throw new PlacesApiException("Google Places API request failed", e,
+                            e instanceof HttpClientErrorException.BadRequest);
+                }
+                long delay = retryDelayMillis(attempt);
+                if (delay >= deadline.remainingMillis()) {
+                    deadlineExhausted.increment();
+                    log.warn("No time left before the deadline to retry failed Google Places API call: {}", e.toString());
+                    throw new PlacesApiException("Google Places API request failed", e);
+                }
+                if (!retryBudget.tryAcquire()) {
+                    budgetExhausted.increment();
+                    log.warn("Retry budget exhausted, not retrying failed Google Places API call: {}", e.toString());
+                    throw new PlacesApiException("Google Places API request failed", e);
+                }
+                retries.increment();
+                sleepBeforeRetry(delay, e);
+            }
+        }
+    }
 
-            HttpEntity<String> entity = new HttpEntity<>(requestBody.toString(), headers);
+    private HttpEntity<String> createRequest(PlaceSearchQuery query) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Goog-Api-Key", apiKey);
+        headers.set("X-Goog-FieldMask", PlaceField.toNearbySearchFieldMask(query.getFieldMaskOrAll()));
 
-            log.debug("Google Places API Request URL: {}", apiUrl);
-            log.debug("Google Places API Request Headers: {}", headers);
-            log.debug("Google Places API Request Body: {}", requestBody.toString());
+        // Construct the request body
+        JsonObject requestBody = new JsonObject();
+        if (query.hasIncludedTypes()) {
+            JsonArray includedTypes = new JsonArray();
+            query.getIncludedTypes().forEach(includedTypes::add);
+            requestBody.add("includedTypes", includedTypes);
+        }
+        requestBody.addProperty("maxResultCount", MAX_RESULT_COUNT); // Max results (up to 20)
 
-            ResponseEntity<String> responseEntity = restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
+        JsonObject locationRestriction = new JsonObject();
+        JsonObject circle = new JsonObject();
+        JsonObject center = new JsonObject();
+        center.addProperty("latitude", query.getLatitude());
+        center.addProperty("longitude", query.getLongitude());
+        circle.add("center", center);
+        circle.addProperty("radius", query.getRadius().doubleValue());
+        locationRestriction.add("circle", circle);
+        requestBody.add("locationRestriction", locationRestriction);
 
-            log.debug("Google Places API Response Status: {}", responseEntity.getStatusCode());
-            log.debug("Google Places API Response Body: {}", responseEntity.getBody());
+        log.debug("Google Places API Request URL: {}", apiUrl);
+        log.debug("Google Places API Request Headers: {}", headers);
+        log.debug("Google Places API Request Body: {}", requestBody.toString());
 
-            return parseResponse(responseEntity.getBody(), query);
+        return new HttpEntity<>(requestBody.toString(), headers);
+    }
 
-        } catch (Exception e) {
-            log.error("Error fetching places from Google API (v1)", e);
-            return new ArrayList<>();
+    /**
+     * One attempt, hedged when enabled: if the call has not answered within the hedge delay
+     * (the configured percentile of recent latencies), a second identical call is sent and the
+     * first successful answer is used. The slower call is left to finish and its answer dropped.
+     */
+    private String exchange(HttpMethod method, String url, HttpEntity<String> entity) throws Exception {
+        long hedgeDelayMillis = hedgeExecutor != null ? latencies.percentileMillis(hedgePercentile) : -1;
+        if (hedgeDelayMillis < 0) {
+            return call(method, url, entity, true);
         }
+        CompletableFuture<String> primary;
+        try {
+            primary = CompletableFuture.supplyAsync(() -> call(method, url, entity, true), hedgeExecutor);
+        } catch (RejectedExecutionException e) {
+            return call(method, url, entity, true);
+        }
+        try {
+            return primary.get(Math.max(hedgeDelayMillis, hedgeMinDelayMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Slower than usual; hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        if (!retryBudget.tryAcquire()) {
+            budgetExhausted.increment();
+            return await(primary);
+        }
+        CompletableFuture<String> hedge;
+        try {
+            hedge = CompletableFuture.supplyAsync(() -> call(method, url, entity, true), hedgeExecutor);
+        } catch (RejectedExecutionException e) {
+            return await(primary);
+        }
+        hedges.increment();
+        CompletableFuture<String> first = firstSuccessful(primary, hedge);
+        String body = await(first);
+        if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.getNow(null) == body) {
+            hedgeWins.increment();
+        }
+        return body;
+    }
+
+    /**
+     * Completes with the first of the two to succeed, or with the last failure if both fail
+     */
+    private static CompletableFuture<String> firstSuccessful(CompletableFuture<String> a, CompletableFuture<String> b) {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<String> future : Arrays.asList(a, b)) {
+            future.whenComplete((body, error) -> {
+                if (error == null) {
+                    first.complete(body);
+                } else if (failed.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        return first;
+    }
+
+    private String call(HttpMethod method, String url, HttpEntity<String> entity, boolean recordLatency) {
+        long start = System.nanoTime();
+        ResponseEntity<String> responseEntity = restTemplate.exchange(url, method, entity, String.class);
+        if (recordLatency) {
+            latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        log.debug("Google Places API Response Status: {}", responseEntity.getStatusCode());
+        log.debug("Google Places API Response Body: {}", responseEntity.getBody());
+        return responseEntity.getBody();
+    }
+
+    private static String await(CompletableFuture<String> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    /**
+     * Connection failures and the configured status codes (rate limited, unavailable) are retried;
+     * other client errors would fail the same way again
+     */
+    private boolean isRetryable(Exception e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof RestClientResponseException) {
+            int status = ((RestClientResponseException) e).getRawStatusCode();
+            for (int retryable : retryableStatuses) {
+                if (status == retryable) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exponential backoff with full jitter, so retries of many failed calls do not arrive together
+     */
+    private long retryDelayMillis(int attempt) {
+        long ceiling = Math.min(retryMaxDelayMillis, retryBaseDelayMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleepBeforeRetry(long delay, Exception cause) {
+        log.info("Retrying Google Places API call in {} ms after: {}", delay, cause.toString());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PlacesApiException("Interrupted while waiting to retry Google Places API request", cause);
+        }
+    }
+
+    /**
+     * Retries, hedged calls, budget refusals and the current hedge delay for the admin API
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("retries", retries.sum());
+        metrics.put("maxRetries", maxRetries);
+        metrics.put("hedgingEnabled", hedgeExecutor != null);
+        metrics.put("hedges", hedges.sum());
+        metrics.put("hedgeWins", hedgeWins.sum());
+        metrics.put("hedgeDelayMillis", hedgeExecutor != null
+                ? Math.max(latencies.percentileMillis(hedgePercentile), hedgeMinDelayMillis) : null);
+        metrics.put("budgetExhausted", budgetExhausted.sum());
+        metrics.put("deadlineExhausted", deadlineExhausted.sum());
+        metrics.put("latencyP50Millis", latencies.percentileMillis(50));
+        metrics.put("latencyP99Millis", latencies.percentileMillis(99));
+        return metrics;
     }
 
     /**
@@ -97,9 +429,11 @@ public class GooglePlacesService {
      * @param responseBody The JSON response string from Google Places API
      * @param query The original search query
      * @return List of Place objects representing nearby locations
+     * @throws PlacesApiException if the response is malformed
      */
-    private List<Place> parseResponse(String responseBody, PlaceSearchQuery query) {
+    List<Place> parseResponse(String responseBody, PlaceSearchQuery query) {
         List<Place> places = new ArrayList<>();
+        int fieldMask = query.getFieldMaskOrAll();
         if (responseBody == null || responseBody.isEmpty()) {
             log.warn("Received empty response from Google Places API");
             return places;
@@ -113,71 +447,118 @@ public class GooglePlacesService {
                 JsonArray results = jsonResponse.getAsJsonArray("places");
                 
                 for (JsonElement resultElement : results) {
-                    JsonObject placeJson = resultElement.getAsJsonObject();
-                    Place place = new Place();
-                    
-                    // The ID in the new API is under "name" field, e.g. "places/ChIJN1t_tDeuEmsRUsoyG83frY4"
-                    // We'll use the place ID part if available, or the full name as ID.
-                    // However, the fieldMask requests 'places.id' which should give the shorter ID.
-                    if (placeJson.has("id")) {
-                        place.setId(placeJson.get("id").getAsString());
-                    } else if (placeJson.has("name")) { // Fallback if 'id' is not present with the field mask
-                        place.setId(placeJson.get("name").getAsString()); 
-                    }
-                    
-                    if (placeJson.has("displayName")) {
-                        JsonObject displayNameObj = placeJson.getAsJsonObject("displayName");
-                        if(displayNameObj.has("text")) {
-                           place.setDisplayName(displayNameObj.get("text").getAsString());
-                        }                       
-                    }
-                    
-                    if (placeJson.has("formattedAddress")) {
-                        place.setFormattedAddress(placeJson.get("formattedAddress").getAsString());
-                    }
-                    
-                    if (placeJson.has("primaryType")) {
-                        place.setPrimaryType(placeJson.get("primaryType").getAsString());
-                    }
-
-                    if (placeJson.has("websiteUri")) {
-                        place.setWebsiteUri(placeJson.get("websiteUri").getAsString());
-                    }
-                    
-                    if (placeJson.has("rating")) {
-                        place.setRating(placeJson.get("rating").getAsDouble());
-                    }
-                    
-                    // Get geometry/location
-                    if (placeJson.has("location")) {
-                        JsonObject location = placeJson.getAsJsonObject("location");
-                        if (location.has("latitude") && location.has("longitude")) {
-                            place.setLatitude(location.get("latitude").getAsDouble());
-                            place.setLongitude(location.get("longitude").getAsDouble());
-                        }
-                    }
+                    Place place = parsePlace(resultElement.getAsJsonObject());
                     
                     // Save the query parameters for caching
                     place.setQueryLongitude(query.getLongitude());
                     place.setQueryLatitude(query.getLatitude());
                     place.setQueryRadius(query.getRadius());
                     
-                    // Save timestamp
+                    // Save timestamp and which fields were requested
                     place.setCreatedAt(LocalDateTime.now());
-                    
-                    // Save the raw JSON for this place object
-                    place.setRawResponse(placeJson.toString());
+                    place.setFieldMask(fieldMask);
                     
                     places.add(place);
                 }
+                for (Place place : places) {
+                    place.setQueryResultCount(places.size());
+                }
             } else {
                  log.warn("Google Places API response does not contain 'places' array. Response: {}", responseBody);
             }
             
         } catch (Exception e) {
             log.error("Error parsing Google Places API (v1) response: {}", responseBody, e);
+            throw new PlacesApiException("Could not parse Google Places API response", e);
         }
         
         return places;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Parse the fields of one place object; the caller sets the query and cache bookkeeping
+     */
+    private static Place parsePlace(JsonObject placeJson) {
+        Place place = new Place();
+        
+        // The ID in the new API is under "name" field, e.g. "places/ChIJN1t_tDeuEmsRUsoyG83frY4"
+        // We'll use the place ID part if available, or the full name as ID.
+        // However, the fieldMask requests 'places.id' which should give the shorter ID.
+        if (placeJson.has("id")) {
+            place.setId(placeJson.get("id").getAsString());
+        } else if (placeJson.has("name")) { // Fallback if 'id' is not present with the field mask
+            place.setId(placeJson.get("name").getAsString()); 
+        }
+        
+        if (placeJson.has("displayName")) {
+            JsonObject displayNameObj = placeJson.getAsJsonObject("displayName");
+            if(displayNameObj.has("text")) {
+               place.setDisplayName(displayNameObj.get("text").getAsString());
+            }                       
+        }
+        
+        if (placeJson.has("formattedAddress")) {
+            place.setFormattedAddress(placeJson.get("formattedAddress").getAsString());
+        }
+        
+        if (placeJson.has("primaryType")) {
+            place.setPrimaryType(placeJson.get("primaryType").getAsString());
+        }
+
+        if (placeJson.has("websiteUri")) {
+            place.setWebsiteUri(placeJson.get("websiteUri").getAsString());
+        }
+        
+        if (placeJson.has("rating")) {
+            place.setRating(placeJson.get("rating").getAsDouble());
+        }
+        
+        // Get geometry/location
+        if (placeJson.has("location")) {
+            JsonObject location = placeJson.getAsJsonObject("location");
+            if (location.has("latitude") && location.has("longitude")) {
+                place.setLatitude(location.get("latitude").getAsDouble());
+                place.setLongitude(location.get("longitude").getAsDouble());
+            }
+        }
+
+        // Save the raw JSON for this place object
+        place.setRawResponse(placeJson.toString());
+        return place;
+    }
+
+    /**
+     * Latencies of the most recent successful calls, for the hedge delay. The percentile is
+     * recomputed every few samples rather than on every call.
+     */
+    static final class LatencyWindow {
+        private static final int SIZE = 1024;
+        private static final int MIN_SAMPLES = 20;
+        private static final int RECOMPUTE_EVERY = 32;
+
+        private final long[] samples = new long[SIZE];
+        private long recorded; // Guarded by this
+        private volatile long[] sorted = new long[0];
+
+        synchronized void record(long millis) {
+            samples[(int) (recorded++ % SIZE)] = millis;
+            if (recorded == MIN_SAMPLES || (recorded > MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0)) {
+                long[] copy = Arrays.copyOf(samples, (int) Math.min(recorded, SIZE));
+                Arrays.sort(copy);
+                sorted = copy;
+            }
+        }
+
+        /**
+         * @return The percentile of recent latencies, or -1 until enough calls have been seen
+         */
+        long percentileMillis(double percentile) {
+            long[] current = sorted;
+            if (current.length == 0) {
+                return -1;
+            }
+            int index = (int) Math.ceil(percentile / 100 * current.length) - 1;
+            return current[Math.max(0, Math.min(index, current.length - 1))];
+        }
+    }
+}
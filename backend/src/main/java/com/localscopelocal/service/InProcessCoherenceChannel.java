@@ -0,0 +1,61 @@
+package com.localscopelocal.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Channel between nodes running in the same JVM, such as several application contexts started
+ * by a test or the load harness. Every instance joins one JVM-wide bus; each instance delivers
+ * to its own subscribers on its own thread, so a slow node does not hold up the others.
+ */
+public class InProcessCoherenceChannel implements CacheCoherenceChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessCoherenceChannel.class);
+
+    private static final List<InProcessCoherenceChannel> BUS = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<CacheEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "places-coherence-delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InProcessCoherenceChannel() {
+        BUS.add(this);
+    }
+
+    @Override
+    public void publish(CacheEvent event) {
+        for (InProcessCoherenceChannel channel : BUS) {
+            channel.delivery.execute(() -> channel.deliver(event));
+        }
+    }
+
+    private void deliver(CacheEvent event) {
+        for (Consumer<CacheEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Cache event subscriber failed on {}", event, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void close() {
+        BUS.remove(this);
+        delivery.shutdown();
+    }
+}
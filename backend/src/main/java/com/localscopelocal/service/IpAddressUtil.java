@@ -1,147 +1,336 @@
 package com.localscopelocal.service;
 
-import javax.servlet.http.HttpServletRequest;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
- * Utility class for extracting client IP addresses from HTTP requests
- * Handles common proxy headers and load balancer configurations
+ * Allocation-free parsing and formatting of IP addresses in primitive form.
+ *
+ * Every address is held as 128 bits in two longs ({@code high}, {@code low}). IPv4 addresses are
+ * stored in their IPv4-mapped IPv6 form (::ffff:a.b.c.d), so one representation covers both families
+ * and an IPv4 prefix of /n is an IPv6 prefix of /(n + 96).
  */
-public class IpAddressUtil {
-
-    private static final Logger log = LoggerFactory.getLogger(IpAddressUtil.class);
-
-    private static final String[] IP_HEADER_CANDIDATES = {
-            "X-Forwarded-For",
-            "X-Real-IP",
-            "Proxy-Client-IP",
-            "WL-Proxy-Client-IP",
-            "HTTP_X_FORWARDED_FOR",
-            "HTTP_X_FORWARDED",
-            "HTTP_X_CLUSTER_CLIENT_IP",
-            "HTTP_CLIENT_IP",
-            "HTTP_FORWARDED_FOR",
-            "HTTP_FORWARDED",
-            "HTTP_VIA",
-            "REMOTE_ADDR"
-    };
+public final class IpAddressUtil {
+
+    /** Prefix length of the IPv4-mapped range ::ffff:0:0/96 */
+    public static final int IPV4_MAPPED_PREFIX = 96;
+
+    private static final long IPV4_MAPPED_MARKER = 0x0000FFFF00000000L;
+
+    private IpAddressUtil() {
+    }
 
     /**
-     * Extract the real client IP address from the HTTP request
-     * This method handles various proxy headers that might contain the original client IP
+     * Parse an IPv4 or IPv6 address in {@code text[start, end)} without allocating.
+     * Surrounding whitespace, IPv6 brackets, a zone id ("%eth0") and a port suffix
+     * ("1.2.3.4:8080", "[::1]:8080") are tolerated and ignored.
      *
-     * @param request The HTTP servlet request
-     * @return The client IP address as a string
+     * @param text The characters to parse
+     * @param start Start index (inclusive)
+     * @param end End index (exclusive)
+     * @param out Receives the address as {high, low}; untouched if parsing fails
+     * @return true if a valid address was parsed
      */
-    public static String getClientIpAddress(HttpServletRequest request) {
-        String ipAddress = null;
-
-        // Check each possible header for the IP address
-        for (String header : IP_HEADER_CANDIDATES) {
-            ipAddress = request.getHeader(header);
-            if (isValidIpAddress(ipAddress)) {
-                log.debug("Found client IP {} in header {}", ipAddress, header);
-                break;
-            }
+    public static boolean parse(CharSequence text, int start, int end, long[] out) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
         }
-
-        // If no valid IP found in headers, use the remote address
-        if (!isValidIpAddress(ipAddress)) {
-            ipAddress = request.getRemoteAddr();
-            log.debug("Using remote address as client IP: {}", ipAddress);
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
         }
-
-        // Handle X-Forwarded-For header which may contain multiple IPs
-        if (ipAddress != null && ipAddress.contains(",")) {
-            // X-Forwarded-For can contain multiple IPs: "client, proxy1, proxy2"
-            // The first one is usually the original client IP
-            ipAddress = ipAddress.split(",")[0].trim();
-            log.debug("Extracted first IP from comma-separated list: {}", ipAddress);
+        if (start >= end) {
+            return false;
         }
 
-        // Handle IPv6 to IPv4 mapping (::ffff:192.168.1.1 -> 192.168.1.1)
-        if (ipAddress != null && ipAddress.startsWith("::ffff:") && ipAddress.length() > 7) {
-            String mappedIp = ipAddress.substring(7);
-            if (isValidIpv4Address(mappedIp)) {
-                ipAddress = mappedIp;
-                log.debug("Converted IPv6 mapped address to IPv4: {}", ipAddress);
+        if (text.charAt(start) == '[') {
+            int close = indexOf(text, ']', start + 1, end);
+            if (close < 0) {
+                return false;
             }
+            start++;
+            end = close;
         }
 
-        // Default to localhost if we still don't have a valid IP
-        if (!isValidIpAddress(ipAddress)) {
-            ipAddress = "127.0.0.1";
-            log.debug("No valid IP found, defaulting to localhost");
+        int colons = 0;
+        boolean dots = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ':') {
+                colons++;
+            } else if (c == '.') {
+                dots = true;
+            } else if (c == '%') {
+                end = i;
+                break;
+            }
         }
 
-        return ipAddress;
+        if (colons == 0 || (colons == 1 && dots)) {
+            // Plain IPv4, possibly with a ":port" suffix
+            int v4End = colons == 1 ? indexOf(text, ':', start, end) : end;
+            long v4 = parseIpv4(text, start, v4End);
+            if (v4 < 0) {
+                return false;
+            }
+            out[0] = 0L;
+            out[1] = IPV4_MAPPED_MARKER | v4;
+            return true;
+        }
+        return parseIpv6(text, start, end, out);
     }
 
     /**
-     * Check if the IP address is valid and not a placeholder
-     *
-     * @param ipAddress The IP address to validate
-     * @return true if the IP address is valid, false otherwise
+     * Parse a whole string as an address; see {@link #parse(CharSequence, int, int, long[])}
      */
-    private static boolean isValidIpAddress(String ipAddress) {
-        return ipAddress != null 
-                && !ipAddress.isEmpty() 
-                && !ipAddress.equalsIgnoreCase("unknown")
-                && !ipAddress.equalsIgnoreCase("localhost")
-                && !ipAddress.equals("0:0:0:0:0:0:0:1")  // IPv6 localhost
-                && ipAddress.length() > 6;  // Minimum valid IP length
+    public static boolean parse(CharSequence text, long[] out) {
+        return text != null && parse(text, 0, text.length(), out);
     }
 
     /**
-     * Check if the address is a valid IPv4 address
+     * Parse dotted-quad IPv4 in {@code text[start, end)}
      *
-     * @param ipAddress The IP address to validate
-     * @return true if it's a valid IPv4 address, false otherwise
+     * @return The address as an unsigned 32-bit value, or -1 if invalid
      */
-    private static boolean isValidIpv4Address(String ipAddress) {
-        if (ipAddress == null || ipAddress.isEmpty()) {
-            return false;
+    static long parseIpv4(CharSequence text, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? text.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return -1;
+                }
+            } else if (c == '.') {
+                if (digits == 0 || octets == 4) {
+                    return -1;
+                }
+                address = (address << 8) | value;
+                octets++;
+                value = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
         }
+        return octets == 4 ? address : -1;
+    }
 
-        String[] parts = ipAddress.split("\\.");
-        if (parts.length != 4) {
+    /**
+     * Parse IPv6 (RFC 4291 text forms, including "::" and a trailing dotted IPv4 part).
+     * Groups before "::" are placed directly by index; groups after it are shifted into a
+     * right-aligned 128-bit tail and OR-ed in at the end, so no intermediate array is needed.
+     */
+    private static boolean parseIpv6(CharSequence text, int start, int end, long[] out) {
+        long high = 0;
+        long low = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = start;
+        if (end - start >= 2 && text.charAt(start) == ':' && text.charAt(start + 1) == ':') {
+            compressed = true;
+            i += 2;
+        } else if (text.charAt(start) == ':') {
             return false;
         }
 
-        try {
-            for (String part : parts) {
-                int value = Integer.parseInt(part);
-                if (value < 0 || value > 255) {
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            while (i < end && text.charAt(i) != ':') {
+                int digit = Character.digit(text.charAt(i), 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+
+            if (i < end && text.charAt(i) == '.') {
+                // Embedded IPv4 must be the final part and takes two groups
+                long v4 = parseIpv4(text, groupStart, end);
+                if (v4 < 0) {
                     return false;
                 }
+                if (compressed) {
+                    tailHigh = (tailHigh << 32) | (tailLow >>> 32);
+                    tailLow = (tailLow << 32) | v4;
+                    tailGroups += 2;
+                } else {
+                    if (headGroups != 6) {
+                        return false;
+                    }
+                    low |= v4;
+                    headGroups += 2;
+                }
+                i = end;
+                break;
             }
-            return true;
-        } catch (NumberFormatException e) {
+
+            int length = i - groupStart;
+            if (length == 0 || length > 4 || (i < end && text.charAt(i) != ':')) {
+                return false;
+            }
+            if (compressed) {
+                tailHigh = (tailHigh << 16) | (tailLow >>> 48);
+                tailLow = (tailLow << 16) | value;
+                tailGroups++;
+            } else {
+                if (headGroups == 8) {
+                    return false;
+                }
+                if (headGroups < 4) {
+                    high |= (long) value << (16 * (3 - headGroups));
+                } else {
+                    low |= (long) value << (16 * (7 - headGroups));
+                }
+                headGroups++;
+            }
+
+            if (i == end) {
+                break;
+            }
+            // text.charAt(i) == ':'
+            i++;
+            if (i < end && text.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            } else if (i == end) {
+                return false;
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+        if (compressed ? groups > 7 : groups != 8) {
             return false;
         }
+        out[0] = high | tailHigh;
+        out[1] = low | tailLow;
+        return true;
     }
 
     /**
-     * Get a normalized IP address for rate limiting purposes
-     * This can be used to group similar IPs or handle special cases
+     * Parse "address[/prefix]" CIDR notation. IPv4 prefixes are converted to the mapped range.
      *
-     * @param request The HTTP servlet request
-     * @return A normalized IP address string
+     * @param cidr The CIDR string, e.g. "10.0.0.0/8" or "2001:db8::/32"
+     * @param out Receives {high, low, prefixLength}
+     * @return true if valid
+     */
+    public static boolean parseCidr(String cidr, long[] out) {
+        int slash = cidr.indexOf('/');
+        int addressEnd = slash < 0 ? cidr.length() : slash;
+        if (!parse(cidr, 0, addressEnd, out)) {
+            return false;
+        }
+        boolean ipv4 = isIpv4Mapped(out[0], out[1]);
+        int maxPrefix = ipv4 ? 32 : 128;
+        int prefix = maxPrefix;
+        if (slash >= 0) {
+            try {
+                prefix = Integer.parseInt(cidr.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (prefix < 0 || prefix > maxPrefix) {
+                return false;
+            }
+        }
+        out[2] = ipv4 ? prefix + IPV4_MAPPED_PREFIX : prefix;
+        return true;
+    }
+
+    /**
+     * @return true if the address is in the IPv4-mapped range ::ffff:0:0/96
+     */
+    public static boolean isIpv4Mapped(long high, long low) {
+        return high == 0 && (low & 0xFFFFFFFF00000000L) == IPV4_MAPPED_MARKER;
+    }
+
+    /**
+     * High half of the mask for a 128-bit prefix length
+     */
+    public static long maskHigh(int prefixLength) {
+        if (prefixLength <= 0) {
+            return 0L;
+        }
+        return prefixLength >= 64 ? -1L : -1L << (64 - prefixLength);
+    }
+
+    /**
+     * Low half of the mask for a 128-bit prefix length
+     */
+    public static long maskLow(int prefixLength) {
+        if (prefixLength <= 64) {
+            return 0L;
+        }
+        return prefixLength >= 128 ? -1L : -1L << (128 - prefixLength);
+    }
+
+    /**
+     * Format an address: dotted quad for IPv4-mapped addresses, RFC 5952 text otherwise
      */
-    public static String getNormalizedIpAddress(HttpServletRequest request) {
-        String ipAddress = getClientIpAddress(request);
-        
-        // For localhost development, return a consistent identifier
-        if (ipAddress.equals("127.0.0.1") || ipAddress.equals("0:0:0:0:0:0:0:1")) {
-            return "localhost";
-        }
-        
-        // You could add additional normalization logic here, such as:
-        // - Masking the last octet for privacy: 192.168.1.* -> 192.168.1.0
-        // - Grouping private networks
-        // - Handling known proxy networks
-        
-        return ipAddress;
+    public static String format(long high, long low) {
+        StringBuilder sb = new StringBuilder(39);
+        appendTo(sb, high, low);
+        return sb.toString();
+    }
+
+    static void appendTo(StringBuilder sb, long high, long low) {
+        if (isIpv4Mapped(high, low)) {
+            sb.append((low >>> 24) & 0xFF).append('.')
+                    .append((low >>> 16) & 0xFF).append('.')
+                    .append((low >>> 8) & 0xFF).append('.')
+                    .append(low & 0xFF);
+            return;
+        }
+
+        // Find the longest run of two or more zero groups to compress as "::"
+        int bestStart = -1;
+        int bestLength = 1;
+        int runStart = -1;
+        for (int g = 0; g <= 8; g++) {
+            boolean zero = g < 8 && group(high, low, g) == 0;
+            if (zero && runStart < 0) {
+                runStart = g;
+            } else if (!zero && runStart >= 0) {
+                if (g - runStart > bestLength) {
+                    bestStart = runStart;
+                    bestLength = g - runStart;
+                }
+                runStart = -1;
+            }
+        }
+
+        for (int g = 0; g < 8; g++) {
+            if (g == bestStart) {
+                sb.append("::");
+                g += bestLength - 1;
+                continue;
+            }
+            if (g > 0 && g != bestStart + bestLength) {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(group(high, low, g)));
+        }
+    }
+
+    private static int group(long high, long low, int index) {
+        long half = index < 4 ? high : low;
+        return (int) (half >>> (16 * (3 - (index & 3)))) & 0xFFFF;
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
     }
-} 
\ No newline at end of file
+}
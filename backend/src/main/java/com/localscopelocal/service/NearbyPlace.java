@@ -0,0 +1,30 @@
+package com.localscopelocal.service;
+
+/**
+ * A cached place found by a spatial search, with its distance from the search center
+ */
+public final class NearbyPlace {
+    private final String id;
+    private final double latitude;
+    private final double longitude;
+    private final Double rating;
+    private final String primaryType;
+    private final double distanceMeters;
+
+    public NearbyPlace(String id, double latitude, double longitude, Double rating, String primaryType,
+                       double distanceMeters) {
+        this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.rating = rating;
+        this.primaryType = primaryType;
+        this.distanceMeters = distanceMeters;
+    }
+
+    public String getId() { return id; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public Double getRating() { return rating; }
+    public String getPrimaryType() { return primaryType; }
+    public double getDistanceMeters() { return distanceMeters; }
+}
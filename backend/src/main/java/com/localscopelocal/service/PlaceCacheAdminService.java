@@ -0,0 +1,240 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.PlaceSearchQuery;
+import com.localscopelocal.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Inspection and invalidation of the place cache for the admin API.
+ *
+ * Bulk invalidation is incremental: ids are selected and deleted in small batches, each in
+ * its own short transaction, with a pause in between. The Place table is therefore never
+ * locked for the whole operation and searches keep being served while it runs.
+ *
+ * Invalidations are announced to the other nodes, which apply them to their own caches.
+ */
+@Service
+public class PlaceCacheAdminService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceCacheAdminService.class);
+
+    // Bytes per row for the fixed-width columns (5 doubles/integers and a timestamp)
+    private static final long FIXED_ROW_BYTES = 48;
+
+    // Upper bounds of the age histogram buckets; the last bucket is open-ended
+    private static final Duration[] AGE_BUCKETS = {
+            Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(7), Duration.ofDays(30)
+    };
+    private static final String[] AGE_BUCKET_LABELS = {"<1h", "1h-1d", "1d-7d", "7d-30d", ">30d"};
+
+    private final PlaceRepository placeRepository;
+    private final CacheStatistics cacheStatistics;
+    private final PlaceResultCache resultCache;
+    private final EmptyResultCache emptyResults;
+    private final PlaceWriteBehindQueue writeBehind;
+    private final PlaceLookupService placeLookupService;
+    private final CacheCoherenceService coherence;
+
+    @Value("${places.cache.invalidation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${places.cache.invalidation.pause-ms:20}")
+    private long pauseMillis;
+
+    @Autowired
+    public PlaceCacheAdminService(PlaceRepository placeRepository, CacheStatistics cacheStatistics,
+                                  PlaceResultCache resultCache, EmptyResultCache emptyResults,
+                                  PlaceWriteBehindQueue writeBehind, PlaceLookupService placeLookupService,
+                                  CacheCoherenceService coherence) {
+        this.placeRepository = placeRepository;
+        this.cacheStatistics = cacheStatistics;
+        this.resultCache = resultCache;
+        this.emptyResults = emptyResults;
+        this.writeBehind = writeBehind;
+        this.placeLookupService = placeLookupService;
+        this.coherence = coherence;
+        coherence.onEviction(this::applyRemoteInvalidation);
+    }
+
+    /**
+     * Cache size in rows, distinct queries and estimated bytes
+     */
+    public Map<String, Object> getSize() {
+        long rows = placeRepository.count();
+        Long textLength = placeRepository.sumTextLength();
+
+        Map<String, Object> size = new LinkedHashMap<>();
+        size.put("rows", rows);
+        size.put("distinctQueries", placeRepository.countDistinctQueries());
+        // Text is stored as UTF-16 in memory; this is an estimate, not H2's on-disk size
+        size.put("estimatedBytes", (textLength == null ? 0 : textLength * 2) + rows * FIXED_ROW_BYTES);
+        size.put("memoryEntries", resultCache.size());
+        size.put("memorySerializedBytes", resultCache.getSerializedBytes());
+        return size;
+    }
+
+    /**
+     * Number of cached places per age bucket, plus the oldest and newest entry times
+     */
+    public Map<String, Object> getAgeDistribution() {
+        LocalDateTime now = LocalDateTime.now();
+        long total = placeRepository.count();
+
+        Map<String, Object> buckets = new LinkedHashMap<>();
+        long youngerThanPrevious = 0;
+        for (int i = 0; i < AGE_BUCKETS.length; i++) {
+            long youngerThanBound = placeRepository.countByCreatedAtGreaterThanEqual(now.minus(AGE_BUCKETS[i]));
+            buckets.put(AGE_BUCKET_LABELS[i], youngerThanBound - youngerThanPrevious);
+            youngerThanPrevious = youngerThanBound;
+        }
+        // Rows without a timestamp fall into the oldest bucket
+        buckets.put(AGE_BUCKET_LABELS[AGE_BUCKETS.length], total - youngerThanPrevious);
+
+        Map<String, Object> ages = new LinkedHashMap<>();
+        ages.put("buckets", buckets);
+        ages.put("oldest", placeRepository.findOldestCreatedAt());
+        ages.put("newest", placeRepository.findNewestCreatedAt());
+        return ages;
+    }
+
+    /**
+     * Invalidate all places cached for one query
+     *
+     * @return Number of rows deleted
+     */
+    public long invalidateQuery(PlaceSearchQuery query) {
+        coherence.publish(CacheEvent.evictQuery(coherence.getNodeId(), query));
+        return invalidateQueryLocally(query);
+    }
+
+    private long invalidateQueryLocally(PlaceSearchQuery query) {
+        resultCache.invalidate(query);
+        String allTypesKey = query.withoutIncludedTypes().createCacheKey();
+        emptyResults.invalidateIf(empty -> empty.withoutIncludedTypes().createCacheKey().equals(allTypesKey));
+        writeBehind.discardIf(place -> query.getLongitude().equals(place.getQueryLongitude())
+                && query.getLatitude().equals(place.getQueryLatitude())
+                && query.getRadius().equals(place.getQueryRadius()));
+        long deleted = deleteInBatches("query " + query.createCacheKey(), page ->
+                placeRepository.findIdsBySearchParameters(
+                        query.getLongitude(), query.getLatitude(), query.getRadius(), page));
+        cacheStatistics.forgetKey(query.createCacheKey());
+        return deleted;
+    }
+
+    /**
+     * Invalidate all places cached for queries centered inside a bounding box
+     *
+     * @return Number of rows deleted
+     */
+    public long invalidateBoundingBox(double minLongitude, double maxLongitude,
+                                      double minLatitude, double maxLatitude) {
+        coherence.publish(CacheEvent.evictBoundingBox(coherence.getNodeId(),
+                minLongitude, maxLongitude, minLatitude, maxLatitude));
+        return invalidateBoundingBoxLocally(minLongitude, maxLongitude, minLatitude, maxLatitude);
+    }
+
+    private long invalidateBoundingBoxLocally(double minLongitude, double maxLongitude,
+                                              double minLatitude, double maxLatitude) {
+        Predicate<PlaceSearchQuery> inBox = query ->
+                query.getLongitude() >= minLongitude && query.getLongitude() <= maxLongitude
+                        && query.getLatitude() >= minLatitude && query.getLatitude() <= maxLatitude;
+        resultCache.invalidateIf(entry -> inBox.test(entry.getQuery()));
+        emptyResults.invalidateIf(inBox);
+        writeBehind.discardIf(place -> inBox.test(
+                new PlaceSearchQuery(place.getQueryLongitude(), place.getQueryLatitude(), place.getQueryRadius())));
+        return deleteInBatches(String.format("bbox [%f,%f]x[%f,%f]",
+                        minLongitude, maxLongitude, minLatitude, maxLatitude),
+                page -> placeRepository.findIdsByQueryCenterWithin(
+                        minLongitude, maxLongitude, minLatitude, maxLatitude, page));
+    }
+
+    /**
+     * Invalidate all places cached longer ago than the given age
+     *
+     * @return Number of rows deleted
+     */
+    public long invalidateOlderThan(Duration age) {
+        coherence.publish(CacheEvent.evictOlderThan(coherence.getNodeId(), age.toMillis()));
+        return invalidateOlderThanLocally(age);
+    }
+
+    private long invalidateOlderThanLocally(Duration age) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(age);
+        long cutoffMillis = System.currentTimeMillis() - age.toMillis();
+        resultCache.invalidateIf(entry -> entry.getCreatedAtMillis() < cutoffMillis);
+        writeBehind.discardIf(place -> place.getCreatedAt() != null && place.getCreatedAt().isBefore(cutoff));
+        return deleteInBatches("entries older than " + age,
+                page -> placeRepository.findIdsCreatedBefore(cutoff, page));
+    }
+
+    /**
+     * Apply an invalidation announced by another node, without announcing it again
+     */
+    private void applyRemoteInvalidation(CacheEvent event) {
+        log.info("Applying cache invalidation from node {}", event.getOrigin());
+        switch (event.getType()) {
+            case EVICT_QUERY:
+                invalidateQueryLocally(event.getQuery());
+                break;
+            case EVICT_BOUNDING_BOX:
+                double[] box = event.getBoundingBox();
+                invalidateBoundingBoxLocally(box[0], box[1], box[2], box[3]);
+                break;
+            case EVICT_OLDER_THAN:
+                invalidateOlderThanLocally(Duration.ofMillis(event.getMaxAgeMillis()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Repeatedly select the first page of matching ids and delete them until none are left.
+     * Each deleteAllByIdInBatch call is its own transaction.
+     */
+    private long deleteInBatches(String description, Function<Pageable, List<String>> nextBatch) {
+        long started = System.currentTimeMillis();
+        long deleted = 0;
+        Pageable firstPage = PageRequest.of(0, batchSize);
+
+        while (true) {
+            List<String> ids = nextBatch.apply(firstPage);
+            if (ids.isEmpty()) {
+                break;
+            }
+            placeRepository.deleteAllByIdInBatch(ids);
+            placeLookupService.invalidate(ids);
+            deleted += ids.size();
+            if (ids.size() < batchSize) {
+                break;
+            }
+            if (pauseMillis > 0) {
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Cache invalidation of {} interrupted after {} rows", description, deleted);
+                    break;
+                }
+            }
+        }
+
+        log.info("Invalidated {} cached places for {} in {} ms", deleted, description,
+                System.currentTimeMillis() - started);
+        return deleted;
+    }
+}
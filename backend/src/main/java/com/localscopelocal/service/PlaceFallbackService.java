@@ -0,0 +1,85 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceField;
+import com.localscopelocal.model.PlaceSearchQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Best answer to a search whose deadline ran out before the cache could be completed or Google
+ * answered, assembled without calling Google. In order of preference: the query's in-memory
+ * entry with whatever fields it holds, and for a type-filtered query its all-types entry filtered
+ * on type even if incomplete; otherwise no places. Only memory is read, so the answer costs no
+ * more than a cache hit however many requests run out of time at once.
+ */
+@Service
+public class PlaceFallbackService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceFallbackService.class);
+
+    private static final byte[] EMPTY_JSON_ARRAY = {'[', ']'};
+
+    private final PlaceResultCache resultCache;
+    private final PlaceRanker placeRanker;
+
+    private final LongAdder cachedEntries = new LongAdder();
+    private final LongAdder empty = new LongAdder();
+
+    @Autowired
+    public PlaceFallbackService(PlaceResultCache resultCache, PlaceRanker placeRanker) {
+        this.resultCache = resultCache;
+        this.placeRanker = placeRanker;
+    }
+
+    /**
+     * @return A result flagged partial unless a cached entry answers the query in full
+     */
+    public PlaceSearchResult fallback(PlaceSearchQuery query) {
+        int required = query.getRequiredFieldMask();
+        PlaceResultCache.Entry entry = resultCache.get(query);
+        if (entry != null) {
+            cachedEntries.increment();
+            log.info("Deadline passed, serving cached places for the query");
+            return toResult(query, entry.getPlaces(), entry.getFieldMask(), !entry.covers(required));
+        }
+        if (query.hasIncludedTypes()) {
+            PlaceResultCache.Entry allTypes = resultCache.get(query.withoutIncludedTypes());
+            if (allTypes != null && allTypes.covers(PlaceField.PRIMARY_TYPE.bit())) {
+                cachedEntries.increment();
+                log.info("Deadline passed, filtering cached all-types places by type");
+                return toResult(query, allTypes.filterByPrimaryType(query.getIncludedTypes()), allTypes.getFieldMask(),
+                        !allTypes.isComplete() || !allTypes.covers(required));
+            }
+        }
+
+        empty.increment();
+        log.info("Deadline passed with nothing cached in memory for the query");
+        return new PlaceSearchResult(Collections.emptyList(), EMPTY_JSON_ARRAY, true, true);
+    }
+
+    private PlaceSearchResult toResult(PlaceSearchQuery query, List<Place> places, int availableMask, boolean partial) {
+        List<Place> selected = query.isRanked() ? placeRanker.rank(places, query) : places;
+        byte[] json = selected.isEmpty() ? EMPTY_JSON_ARRAY
+                : resultCache.serialize(selected, query.getFieldMaskOrAll() & availableMask);
+        return new PlaceSearchResult(selected, json, true, partial);
+    }
+
+    /**
+     * Fallbacks served, by where they came from, for the admin API
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fromCachedEntry", cachedEntries.sum());
+        stats.put("empty", empty.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,159 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.GeoHash;
+import com.localscopelocal.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Spatial search over the places cached in the database, for when the cache is too large to hold
+ * in memory. Candidates are read by range scans on the geohash index, a few ranges per search, so a
+ * lookup stays logarithmic in the table size. Each scan filters on type and returns at most the
+ * requested number of places, nearest first; the exact distance is then checked in memory.
+ */
+@Service
+public class PlaceGeoSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceGeoSearchService.class);
+
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * GeoUtils.EARTH_RADIUS_METERS;
+
+    private final PlaceRepository placeRepository;
+
+    @Autowired
+    public PlaceGeoSearchService(PlaceRepository placeRepository) {
+        this.placeRepository = placeRepository;
+    }
+
+    /**
+     * Cached places within a radius, nearest first
+     *
+     * @param types Primary types to keep, or null/empty for all
+     * @param limit Maximum number of places to return
+     */
+    public List<NearbyPlace> findWithinRadius(double latitude, double longitude, double radiusMeters,
+                                              Collection<String> types, int limit) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        // Near the poles the circle spans every longitude
+        double dLon = cosLat > dLat / 90 ? Math.min(180, dLat / cosLat) : 180;
+
+        List<Object[]> candidates = findInBox(latitude - dLat, latitude + dLat, longitude - dLon, longitude + dLon,
+                latitude, longitude, types, limit);
+        return nearest(candidates, latitude, longitude, radiusMeters, types, limit);
+    }
+
+    /**
+     * Cached places inside a bounding box, nearest to its center first. A box whose minimum longitude
+     * exceeds its maximum crosses the antimeridian.
+     *
+     * @param types Primary types to keep, or null/empty for all
+     * @param limit Maximum number of places to return
+     */
+    public List<NearbyPlace> findWithinBox(double minLatitude, double maxLatitude, double minLongitude,
+                                           double maxLongitude, Collection<String> types, int limit) {
+        double maxLon = maxLongitude < minLongitude ? maxLongitude + 360 : maxLongitude;
+        double centerLat = (minLatitude + maxLatitude) / 2;
+        double centerLon = (minLongitude + maxLon) / 2;
+        centerLon = centerLon > 180 ? centerLon - 360 : centerLon;
+        List<Object[]> candidates = findInBox(minLatitude, maxLatitude, minLongitude, maxLon,
+                centerLat, centerLon, types, limit);
+        return nearest(candidates, centerLat, centerLon, Double.POSITIVE_INFINITY, types, limit);
+    }
+
+    /**
+     * Rows inside a box whose longitudes may run past ±180, split at the antimeridian: at most
+     * {@code limit} of the given types per geohash range, nearest the center first
+     */
+    private List<Object[]> findInBox(double minLat, double maxLat, double minLon, double maxLon,
+                                     double centerLat, double centerLon, Collection<String> types, int limit) {
+        Scan scan = new Scan(centerLat, centerLon, types, limit);
+        if (maxLon - minLon >= 360) {
+            scan.box(minLat, maxLat, -180, 180);
+        } else if (minLon < -180) {
+            scan.box(minLat, maxLat, minLon + 360, 180);
+            scan.box(minLat, maxLat, -180, maxLon);
+        } else if (maxLon > 180) {
+            scan.box(minLat, maxLat, minLon, 180);
+            scan.box(minLat, maxLat, -180, maxLon - 360);
+        } else {
+            scan.box(minLat, maxLat, minLon, maxLon);
+        }
+        return scan.rows;
+    }
+
+    /**
+     * Candidate rows of one search, read box by box
+     */
+    private final class Scan {
+        private final double centerLat;
+        private final double centerLon;
+        private final double longitudeScale;
+        private final boolean allTypes;
+        private final Collection<String> types;
+        private final PageRequest page;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        Scan(double centerLat, double centerLon, Collection<String> types, int limit) {
+            double cosLat = Math.cos(Math.toRadians(centerLat));
+            this.centerLat = centerLat;
+            this.centerLon = centerLon;
+            this.longitudeScale = cosLat * cosLat;
+            this.allTypes = types == null || types.isEmpty();
+            // IN () is not valid SQL, so an unused placeholder stands in for no types
+            this.types = allTypes ? Collections.singletonList("") : types;
+            this.page = PageRequest.of(0, limit);
+        }
+
+        void box(double minLat, double maxLat, double minLon, double maxLon) {
+            // The center as seen from this side of the antimeridian, so plain differences are the short way round
+            double middle = (minLon + maxLon) / 2;
+            double lon = centerLon - middle > 180 ? centerLon - 360 : middle - centerLon > 180 ? centerLon + 360 : centerLon;
+            List<String[]> ranges = GeoHash.coverRanges(minLat, maxLat, minLon, maxLon);
+            int before = rows.size();
+            for (String[] range : ranges) {
+                rows.addAll(placeRepository.findNearestInGeohashRange(range[0], range[1], minLat, maxLat, minLon, maxLon,
+                        allTypes, types, centerLat, lon, longitudeScale, page));
+            }
+            log.debug("Read {} candidate places in {} geohash ranges", rows.size() - before, ranges.size());
+        }
+    }
+
+    /**
+     * Exact distance filter and nearest-first top-k selection over candidate rows
+     */
+    private static List<NearbyPlace> nearest(List<Object[]> candidates, double latitude, double longitude,
+                                             double radiusMeters, Collection<String> types, int limit) {
+        List<NearbyPlace> within = new ArrayList<>();
+        for (Object[] row : candidates) {
+            String primaryType = (String) row[4];
+            if (types != null && !types.isEmpty() && !types.contains(primaryType)) {
+                continue;
+            }
+            double lat = (Double) row[1];
+            double lon = (Double) row[2];
+            double distance = GeoUtils.haversineMeters(latitude, longitude, lat, lon);
+            if (distance <= radiusMeters) {
+                within.add(new NearbyPlace((String) row[0], lat, lon, (Double) row[3], primaryType, distance));
+            }
+        }
+
+        double[] keys = new double[within.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = within.get(i).getDistanceMeters();
+        }
+        List<NearbyPlace> nearest = new ArrayList<>();
+        for (int index : PlaceRanker.selectBest(keys, Math.min(limit, keys.length))) {
+            nearest.add(within.get(index));
+        }
+        return nearest;
+    }
+}
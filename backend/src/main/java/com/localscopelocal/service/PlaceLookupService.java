@@ -0,0 +1,226 @@
+package com.localscopelocal.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceResponse;
+import com.localscopelocal.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lookup of a single place by id, independent of the search cache's query keys.
+ *
+ * Places are held in memory by id with their JSON serialized once, in front of the database.
+ * A place missing from both, or cached without all the lookup fields, is fetched from Google
+ * Place Details with the lookup field mask. Ids Google does not know are remembered for a
+ * shorter time so they do not cost a call each. Capacity is bounded with the same sampled LRU
+ * eviction as {@link PlaceResultCache}.
+ */
+@Service
+public class PlaceLookupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceLookupService.class);
+
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+
+    public static final String SOURCE_MEMORY = "memory";
+    public static final String SOURCE_DATABASE = "database";
+    public static final String SOURCE_GOOGLE = "google";
+
+    private final PlaceRepository placeRepository;
+    private final GooglePlacesService googlePlacesService;
+    private final UpstreamErrorBackoff upstreamBackoff;
+    private final ObjectMapper objectMapper;
+    private final int lookupMask;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+
+    @Value("${places.lookup.cache.max-entries:50000}")
+    private int maxEntries = 50000;
+
+    @Value("${places.lookup.cache.ttl-seconds:600}")
+    private long ttlSeconds = 600;
+
+    @Value("${places.lookup.cache.not-found-ttl-seconds:300}")
+    private long notFoundTtlSeconds = 300;
+
+    @Autowired
+    public PlaceLookupService(PlaceRepository placeRepository, GooglePlacesService googlePlacesService,
+                              UpstreamErrorBackoff upstreamBackoff, ObjectMapper objectMapper,
+                              FieldMaskProfiles fieldMaskProfiles) {
+        this.placeRepository = placeRepository;
+        this.googlePlacesService = googlePlacesService;
+        this.upstreamBackoff = upstreamBackoff;
+        this.objectMapper = objectMapper;
+        this.lookupMask = fieldMaskProfiles.getLookupMask();
+    }
+
+    /**
+     * @return Whether the id can be answered from memory, without side effects on statistics
+     */
+    public boolean isCachedInMemory(String id) {
+        Entry entry = entries.get(id);
+        return entry != null && entry.expiresAtMillis > System.currentTimeMillis();
+    }
+
+    /**
+     * Look up a place by id: memory, then the database, then Google Place Details
+     *
+     * @return The place's JSON and where it came from; the JSON is null if the place does not exist
+     * @throws UpstreamUnavailableException if Google is needed and failing, and no cached copy exists
+     * @throws PlacesApiException marked as a client error if Google rejected the id as invalid
+     */
+    public Lookup lookup(String id) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(id);
+        if (entry != null && entry.expiresAtMillis > now) {
+            entry.lastAccessMillis = now;
+            hits.increment();
+            return new Lookup(entry.json, SOURCE_MEMORY);
+        }
+
+        Place row = placeRepository.findById(id).orElse(null);
+        int rowMask = row == null ? 0 : row.getFieldMask() == null ? lookupMask : row.getFieldMask();
+        if (row != null && (rowMask & lookupMask) == lookupMask) {
+            databaseHits.increment();
+            return new Lookup(put(id, serialize(row, lookupMask), ttlSeconds), SOURCE_DATABASE);
+        }
+
+        String backoffKey = "details:" + id;
+        long backoffMillis = upstreamBackoff.remainingMillis(backoffKey);
+        if (backoffMillis > 0) {
+            return unavailable(row, rowMask, new UpstreamUnavailableException(
+                    "Google Places API is backing off for this place", backoffMillis, null));
+        }
+        Place fetched;
+        try {
+            upstreamCalls.increment();
+            fetched = googlePlacesService.fetchPlaceDetails(id, lookupMask);
+            upstreamBackoff.recordSuccess(backoffKey);
+        } catch (PlacesApiException e) {
+            if (e.isClientError()) {
+                log.warn("Google Place Details rejected the lookup of {}: {}", id, e.getCause().toString());
+                throw e;
+            }
+            long retryAfterMillis = upstreamBackoff.recordFailure(backoffKey);
+            log.warn("Google Place Details failed for {}, backing off for {} ms", id, retryAfterMillis);
+            return unavailable(row, rowMask, new UpstreamUnavailableException(
+                    "Google Places API request failed", retryAfterMillis, e));
+        }
+        if (fetched == null) {
+            log.info("Google does not know place {}", id);
+            return new Lookup(put(id, null, notFoundTtlSeconds), SOURCE_GOOGLE);
+        }
+        return new Lookup(put(id, serialize(fetched, lookupMask), ttlSeconds), SOURCE_GOOGLE);
+    }
+
+    /**
+     * A row cached without some lookup fields is served as it is when Google cannot fill them in
+     */
+    private Lookup unavailable(Place row, int rowMask, UpstreamUnavailableException e) {
+        if (row == null) {
+            throw e;
+        }
+        log.warn("Serving place {} from the database without its missing fields", row.getId());
+        return new Lookup(serialize(row, rowMask & lookupMask), SOURCE_DATABASE);
+    }
+
+    private byte[] put(String id, byte[] json, long ttl) {
+        if (entries.size() >= maxEntries && !entries.containsKey(id)) {
+            evictOne();
+        }
+        long now = System.currentTimeMillis();
+        entries.put(id, new Entry(json, now + ttl * 1000, now));
+        return json;
+    }
+
+    private byte[] serialize(Place place, int fieldMask) {
+        try {
+            return objectMapper.writeValueAsBytes(PlaceResponse.from(place, fieldMask));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize place " + place.getId(), e);
+        }
+    }
+
+    /**
+     * Forget places deleted from the database cache
+     */
+    public void invalidate(Collection<String> ids) {
+        for (String id : ids) {
+            entries.remove(id);
+        }
+    }
+
+    private void evictOne() {
+        Map.Entry<String, Entry> oldest = null;
+        int sampled = 0;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            if (oldest == null || candidate.getValue().lastAccessMillis < oldest.getValue().lastAccessMillis) {
+                oldest = candidate;
+            }
+            if (++sampled == EVICTION_SAMPLE_SIZE) {
+                break;
+            }
+        }
+        if (oldest != null) {
+            entries.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Size and hit counts for the admin API
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("memoryHits", hits.sum());
+        stats.put("databaseHits", databaseHits.sum());
+        stats.put("upstreamCalls", upstreamCalls.sum());
+        stats.put("ttlSeconds", ttlSeconds);
+        return stats;
+    }
+
+    private static final class Entry {
+        private final byte[] json; // null if Google does not know the id
+        private final long expiresAtMillis;
+        private volatile long lastAccessMillis;
+
+        Entry(byte[] json, long expiresAtMillis, long lastAccessMillis) {
+            this.json = json;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+
+    /**
+     * Result of a lookup
+     */
+    public static final class Lookup {
+        private final byte[] json;
+        private final String source;
+
+        Lookup(byte[] json, String source) {
+            this.json = json;
+            this.source = source;
+        }
+
+        public boolean isFound() { return json != null; }
+        public byte[] getJson() { return json; }
+        public String getSource() { return source; }
+    }
+}
@@ -0,0 +1,154 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceSearchQuery;
+import com.localscopelocal.model.PlaceSortOrder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders search results by distance, rating or a blended score and keeps the best k.
+ *
+ * Each place is reduced to one sort key (lower is better) and the best k indices are kept in a
+ * bounded max-heap, so selecting k of n places costs O(n log k) instead of sorting all of them.
+ */
+@Component
+public class PlaceRanker {
+
+    /** Weight of the rating in the blended score; the rest goes to proximity */
+    @Value("${places.ranking.rating-weight:0.5}")
+    private double ratingWeight = 0.5;
+
+    /**
+     * Rank places for a query by its sort order and limit
+     *
+     * @param places The candidate places, in upstream order
+     * @param query The query with the search center, radius, sort order and limit
+     * @return The selected places, best first; upstream order if no sort order is given
+     */
+    public List<Place> rank(List<Place> places, PlaceSearchQuery query) {
+        int limit = query.getLimit() != null ? Math.min(query.getLimit(), places.size()) : places.size();
+        if (query.getSortOrder() == null) {
+            return limit == places.size() ? places : new ArrayList<>(places.subList(0, limit));
+        }
+
+        double[] keys = sortKeys(places, query);
+        int[] selected = selectBest(keys, limit);
+        List<Place> ranked = new ArrayList<>(selected.length);
+        for (int index : selected) {
+            ranked.add(places.get(index));
+        }
+        return ranked;
+    }
+
+    /**
+     * One key per place, lower is better. Places missing the fields an order needs get
+     * positive infinity and end up last.
+     */
+    private double[] sortKeys(List<Place> places, PlaceSearchQuery query) {
+        double originLat = query.getLatitude();
+        double originLon = query.getLongitude();
+        double cosOriginLat = Math.cos(Math.toRadians(originLat));
+        double radius = query.getRadius();
+        PlaceSortOrder order = query.getSortOrder();
+
+        double[] keys = new double[places.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Place place = places.get(i);
+            boolean located = place.getLatitude() != null && place.getLongitude() != null;
+            double distance = located
+                    ? GeoUtils.equirectangularMeters(originLat, originLon, cosOriginLat,
+                            place.getLatitude(), place.getLongitude())
+                    : Double.POSITIVE_INFINITY;
+
+            switch (order) {
+                case DISTANCE:
+                    keys[i] = distance;
+                    break;
+                case RATING:
+                    keys[i] = place.getRating() != null ? -place.getRating() : Double.POSITIVE_INFINITY;
+                    break;
+                case SCORE:
+                    double rating = place.getRating() != null ? place.getRating() / 5.0 : 0;
+                    double proximity = located ? 1 - Math.min(distance / radius, 1) : 0;
+                    keys[i] = -(ratingWeight * rating + (1 - ratingWeight) * proximity);
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled sort order " + order);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Indices of the k smallest keys in ascending key order; ties keep upstream order
+     */
+    static int[] selectBest(double[] keys, int k) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        // Max-heap on (key, index): the worst of the best k so far sits at the root
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size++, keys);
+            } else if (worse(heap[0], i, keys)) {
+                heap[0] = i;
+                siftDown(heap, 0, size, keys);
+            }
+        }
+        // Pop the root repeatedly, filling the result from the back
+        int[] ordered = new int[size];
+        for (int end = size - 1; end >= 0; end--) {
+            ordered[end] = heap[0];
+            heap[0] = heap[end];
+            siftDown(heap, 0, end, keys);
+        }
+        return ordered;
+    }
+
+    /**
+     * Whether index a ranks after index b
+     */
+    private static boolean worse(int a, int b, double[] keys) {
+        int cmp = Double.compare(keys[a], keys[b]);
+        return cmp > 0 || (cmp == 0 && a > b);
+    }
+
+    private static void siftUp(int[] heap, int position, double[] keys) {
+        int item = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!worse(item, heap[parent], keys)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = item;
+    }
+
+    private static void siftDown(int[] heap, int position, int size, double[] keys) {
+        int item = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && worse(heap[child + 1], heap[child], keys)) {
+                child++;
+            }
+            if (!worse(heap[child], item, keys)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = item;
+    }
+}
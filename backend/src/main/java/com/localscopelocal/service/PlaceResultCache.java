@@ -0,0 +1,300 @@
+package com.localscopelocal.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceResponse;
+import com.localscopelocal.model.PlaceSearchQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * In-memory layer in front of the database cache. Each entry holds the places for one query
+ * together with their JSON array serialized once, so repeated hits skip both the database and
+ * per-request object mapping and are copied straight into the response.
+ *
+ * Capacity is bounded with sampled LRU eviction: when full, a few entries are inspected
+ * and the least recently used of them is removed. This keeps reads lock-free, unlike an
+ * access-ordered LinkedHashMap.
+ *
+ * Entries record which place fields they hold. A request for fewer fields is served from
+ * the same entry with a projection serialized once per field mask.
+ *
+ * Entries for all place types also know whether they are complete (Google returned less than
+ * a full page) and index their places by primary type, so type-filtered searches can be
+ * answered from them without another upstream call.
+ *
+ * Entries expire a while after they are stored, so a copy left stale by a missed coherence
+ * announcement is reloaded from the database or the owning node eventually.
+ */
+@Component
+public class PlaceResultCache {
+
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${places.cache.memory.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    // How long an entry is held in memory; 0 keeps it until evicted or invalidated
+    @Value("${places.cache.memory.ttl-seconds:3600}")
+    private long ttlSeconds = 3600;
+
+    @Autowired
+    public PlaceResultCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return The entry for the query, or null if not held in memory
+     */
+    public Entry get(PlaceSearchQuery query) {
+        String key = query.createCacheKey();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long now = System.currentTimeMillis();
+            if (entry.expiresAtMillis <= now) {
+                entries.remove(key, entry);
+                return null;
+            }
+            entry.lastAccessMillis = now;
+        }
+        return entry;
+    }
+
+    /**
+     * Serialize and store the places for a query
+     *
+     * @param fieldMask The fields the places hold
+     * @param complete Whether the places are everything the query matches upstream
+     * @return The stored entry
+     */
+    public Entry put(PlaceSearchQuery query, List<Place> places, int fieldMask, boolean complete) {
+        PlaceSearchQuery key = new PlaceSearchQuery(query.getLongitude(), query.getLatitude(), query.getRadius());
+        key.setIncludedTypes(query.getIncludedTypes());
+        Entry entry = new Entry(key, Collections.unmodifiableList(new ArrayList<>(places)),
+                serialize(places, fieldMask), fieldMask, complete,
+                ttlSeconds > 0 ? System.currentTimeMillis() + ttlSeconds * 1000 : Long.MAX_VALUE);
+        if (entries.size() >= maxEntries) {
+            evictOne();
+        }
+        entries.put(query.createCacheKey(), entry);
+        return entry;
+    }
+
+    /**
+     * The entry's JSON restricted to the requested fields.
+     * Projections are serialized on first use and kept with the entry.
+     */
+    public byte[] getJson(Entry entry, int fieldMask) {
+        int projected = entry.fieldMask & fieldMask;
+        if (projected == entry.fieldMask) {
+            return entry.json;
+        }
+        return entry.projections.computeIfAbsent(projected, mask -> serialize(entry.places, mask));
+    }
+
+    /**
+     * Serialize places to the public JSON array representation
+     */
+    public byte[] serialize(List<Place> places, int fieldMask) {
+        List<PlaceResponse> responses = new ArrayList<>(places.size());
+        for (Place place : places) {
+            responses.add(PlaceResponse.from(place, fieldMask));
+        }
+        try {
+            return objectMapper.writeValueAsBytes(responses);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize places", e);
+        }
+    }
+
+    /**
+     * Remove the entry for a query, along with the type-filtered entries for the same location
+     */
+    public void invalidate(PlaceSearchQuery query) {
+        entries.remove(query.createCacheKey());
+        String allTypesKey = query.withoutIncludedTypes().createCacheKey();
+        invalidateIf(entry -> entry.query.hasIncludedTypes()
+                && entry.query.withoutIncludedTypes().createCacheKey().equals(allTypesKey));
+    }
+
+    /**
+     * Remove all entries matching the predicate
+     *
+     * @return Number of entries removed
+     */
+    public int invalidateIf(Predicate<Entry> predicate) {
+        int removed = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (predicate.test(it.next())) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Approximate heap used by the serialized payloads
+     */
+    public long getSerializedBytes() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.json.length;
+            for (byte[] projection : entry.projections.values()) {
+                bytes += projection.length;
+            }
+        }
+        return bytes;
+    }
+
+    private void evictOne() {
+        Map.Entry<String, Entry> oldest = null;
+        int sampled = 0;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            if (oldest == null || candidate.getValue().lastAccessMillis < oldest.getValue().lastAccessMillis) {
+                oldest = candidate;
+            }
+            if (++sampled == EVICTION_SAMPLE_SIZE) {
+                break;
+            }
+        }
+        if (oldest != null) {
+            entries.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Places cached for one query, with their serialized form
+     */
+    public static final class Entry {
+        private final PlaceSearchQuery query;
+        private final List<Place> places;
+        private final byte[] json;
+        private final int fieldMask;
+        private final boolean complete;
+        private final ConcurrentMap<Integer, byte[]> projections = new ConcurrentHashMap<>(4);
+        private volatile Map<String, int[]> typeIndex;
+        private final long createdAtMillis;
+        private final long expiresAtMillis;
+        private volatile long lastAccessMillis;
+
+        Entry(PlaceSearchQuery query, List<Place> places, byte[] json, int fieldMask, boolean complete,
+              long expiresAtMillis) {
+            this.query = query;
+            this.places = places;
+            this.json = json;
+            this.fieldMask = fieldMask;
+            this.complete = complete;
+            this.createdAtMillis = oldestCreatedAt(places);
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * Age of an entry is that of its oldest place, so age-based invalidation
+         * treats entries loaded from the database the same as the rows behind them
+         */
+        private static long oldestCreatedAt(List<Place> places) {
+            long oldest = System.currentTimeMillis();
+            for (Place place : places) {
+                if (place.getCreatedAt() != null) {
+                    oldest = Math.min(oldest,
+                            place.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                }
+            }
+            return oldest;
+        }
+
+        /**
+         * Places whose primary type is one of the given types, in their original order.
+         * The inverted index from type to positions is built on first use.
+         */
+        public List<Place> filterByPrimaryType(List<String> types) {
+            Map<String, int[]> index = typeIndex;
+            if (index == null) {
+                index = buildTypeIndex(places);
+                typeIndex = index;
+            }
+
+            int[] matches = new int[0];
+            for (String type : types) {
+                int[] positions = index.get(type);
+                if (positions != null) {
+                    matches = mergeSorted(matches, positions);
+                }
+            }
+            List<Place> filtered = new ArrayList<>(matches.length);
+            for (int position : matches) {
+                filtered.add(places.get(position));
+            }
+            return filtered;
+        }
+
+        private static Map<String, int[]> buildTypeIndex(List<Place> places) {
+            Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < places.size(); i++) {
+                String type = places.get(i).getPrimaryType();
+                if (type != null) {
+                    positions.computeIfAbsent(type, t -> new ArrayList<>()).add(i);
+                }
+            }
+            Map<String, int[]> index = new HashMap<>(positions.size() * 2);
+            positions.forEach((type, list) -> index.put(type, list.stream().mapToInt(Integer::intValue).toArray()));
+            return index;
+        }
+
+        /**
+         * Union of two ascending position arrays; a place has one primary type, so they are disjoint
+         */
+        private static int[] mergeSorted(int[] a, int[] b) {
+            int[] merged = new int[a.length + b.length];
+            int i = 0, j = 0, k = 0;
+            while (i < a.length && j < b.length) {
+                merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+            }
+            while (i < a.length) {
+                merged[k++] = a[i++];
+            }
+            while (j < b.length) {
+                merged[k++] = b[j++];
+            }
+            return merged;
+        }
+
+        public PlaceSearchQuery getQuery() { return query; }
+        public List<Place> getPlaces() { return places; }
+        public byte[] getJson() { return json; }
+        public int getFieldMask() { return fieldMask; }
+        public boolean isComplete() { return complete; }
+        public boolean covers(int requestedMask) { return (fieldMask & requestedMask) == requestedMask; }
+        public long getCreatedAtMillis() { return createdAtMillis; }
+        public int getCount() { return places.size(); }
+    }
+}
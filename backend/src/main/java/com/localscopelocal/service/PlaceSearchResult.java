@@ -0,0 +1,35 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.Place;
+
+import java.util.List;
+
+/**
+ * Result of a place search: the places plus their pre-serialized JSON array,
+ * ready to be written to the response as is. A result assembled when the request's deadline
+ * ran out is flagged partial if it may lack places or fields the search would have returned.
+ */
+public class PlaceSearchResult {
+
+    private final List<Place> places;
+    private final byte[] placesJson;
+    private final boolean fromCache;
+    private final boolean partial;
+
+    public PlaceSearchResult(List<Place> places, byte[] placesJson, boolean fromCache) {
+        this(places, placesJson, fromCache, false);
+    }
+
+    public PlaceSearchResult(List<Place> places, byte[] placesJson, boolean fromCache, boolean partial) {
+        this.places = places;
+        this.placesJson = placesJson;
+        this.fromCache = fromCache;
+        this.partial = partial;
+    }
+
+    public List<Place> getPlaces() { return places; }
+    public byte[] getPlacesJson() { return placesJson; }
+    public int getCount() { return places.size(); }
+    public boolean isFromCache() { return fromCache; }
+    public boolean isPartial() { return partial; }
+}
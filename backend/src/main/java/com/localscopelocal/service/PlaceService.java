@@ -1,14 +1,27 @@
 package com.localscopelocal.service;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.localscopelocal.model.Place;
+import com.localscopelocal.model.PlaceField;
 import com.localscopelocal.model.PlaceSearchQuery;
 import com.localscopelocal.repository.PlaceRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Service for place-related operations, including caching
@@ -18,48 +31,573 @@ public class PlaceService {
 
     private static final Logger log = LoggerFactory.getLogger(PlaceService.class);
 
+    private static final byte[] EMPTY_JSON_ARRAY = {'[', ']'};
+
     private final PlaceRepository placeRepository;
     private final GooglePlacesService googlePlacesService;
+    private final CacheStatistics cacheStatistics;
+    private final PlaceResultCache resultCache;
+    private final PlaceRanker placeRanker;
+    private final EmptyResultCache emptyResults;
+    private final UpstreamErrorBackoff upstreamBackoff;
+    private final PlaceWriteBehindQueue writeBehind;
+    private final CacheCoherenceService coherence;
+    private final PlaceFallbackService fallbackService;
+    private final Executor dbExecutor;
+    private final Executor upstreamExecutor;
+    private final ScheduledExecutorService deadlineTimer;
 
     @Autowired
-    public PlaceService(PlaceRepository placeRepository, GooglePlacesService googlePlacesService) {
+    public PlaceService(PlaceRepository placeRepository, GooglePlacesService googlePlacesService,
+                        CacheStatistics cacheStatistics, PlaceResultCache resultCache, PlaceRanker placeRanker,
+                        EmptyResultCache emptyResults, UpstreamErrorBackoff upstreamBackoff,
+                        PlaceWriteBehindQueue writeBehind, CacheCoherenceService coherence,
+                        PlaceFallbackService fallbackService,
+                        @Qualifier("placesDbExecutor") Executor dbExecutor,
+                        @Qualifier("placesUpstreamExecutor") Executor upstreamExecutor,
+                        @Qualifier("placesDeadlineTimer") ScheduledExecutorService deadlineTimer) {
         this.placeRepository = placeRepository;
         this.googlePlacesService = googlePlacesService;
+        this.cacheStatistics = cacheStatistics;
+        this.resultCache = resultCache;
+        this.placeRanker = placeRanker;
+        this.emptyResults = emptyResults;
+        this.upstreamBackoff = upstreamBackoff;
+        this.writeBehind = writeBehind;
+        this.coherence = coherence;
+        this.fallbackService = fallbackService;
+        this.dbExecutor = dbExecutor;
+        this.upstreamExecutor = upstreamExecutor;
+        this.deadlineTimer = deadlineTimer;
     }
 
     /**
      * Get nearby places based on the provided search query
-     * First checks cache, then calls Google Places API if needed
+     * First checks the in-memory and database caches, then calls Google Places API if needed.
+     * A cached entry lacking some of the requested fields is completed by fetching only the
+     * missing fields and merging them into the cached places by id.
+     * A search restricted to place types is answered by filtering the cached all-types result
+     * when that result is complete, and by a type-specific upstream call otherwise.
+     * Results are ordered and cut to the query's limit last, whichever layer served them.
+     * Searches Google recently found empty are answered from a short-lived negative cache.
+     * When several nodes share the cache, a miss for a key another node owns is asked of that
+     * node instead of Google.
+     *
+     * @param query The search query with location, radius, requested fields, types and ordering
+     * @return The places with their serialized JSON
+     * @throws UpstreamUnavailableException if nothing is cached and Google is failing for the query
+     * @throws PlacesApiException marked as a client error if Google rejected the search as invalid
+     */
+    public PlaceSearchResult getNearbyPlaces(PlaceSearchQuery query) {
+        return getNearbyPlaces(query, RequestDeadline.none());
+    }
+
+    /**
+     * {@link #getNearbyPlaces(PlaceSearchQuery)} within a deadline. Once it has passed the database
+     * is skipped, and the calls to the owner or Google time out when it passes; the request is
+     * then answered by {@link PlaceFallbackService}.
+     *
+     * @param query The search query with location, radius, requested fields, types and ordering
+     * @param deadline When the request has to be answered
+     * @return The places with their serialized JSON, flagged partial when the deadline cut the search short
+     * @throws UpstreamUnavailableException if nothing is cached and Google failed for the query in time
+     */
+    public PlaceSearchResult getNearbyPlaces(PlaceSearchQuery query, RequestDeadline deadline) {
+        log.info("Searching for places with query: {} ({})", query, deadline);
+        return search(query, true, deadline);
+    }
+
+    /**
+     * Search on behalf of another node that routed its miss here, as the owner of the key
      *
-     * @param query The search query with location and radius
-     * @return List of Place objects representing nearby locations
+     * @param query The search query with location, radius, required fields and types
+     * @return All places cached or fetched for the query, unranked, with the fields they hold
+     * @throws UpstreamUnavailableException if nothing is cached and Google is failing for the query
      */
-    public List<Place> getNearbyPlaces(PlaceSearchQuery query) {
-        log.info("Searching for places with query: {}", query);
+    public CacheCoherenceService.PeerResult getNearbyPlacesForPeer(PlaceSearchQuery query) {
+        log.info("Searching for places for a peer with query: {}", query);
+        return coherence.servePeer(query, () -> {
+            List<Place> places = search(query, false, RequestDeadline.none()).getPlaces();
+            int fieldMask = query.getRequiredFieldMask();
+            if (!places.isEmpty()) {
+                fieldMask = PlaceField.ALL;
+                for (Place place : places) {
+                    fieldMask &= place.getFieldMaskOrAll();
+                }
+            }
+            return new CacheCoherenceService.PeerResult(places, fieldMask,
+                    places.size() < GooglePlacesService.MAX_RESULT_COUNT);
+        });
+    }
+
+    private PlaceSearchResult search(PlaceSearchQuery query, boolean routeToOwner, RequestDeadline deadline) {
+        CacheLookup lookup = lookupInMemory(query);
+        if (lookup.result == null && needsDatabase(query, lookup.entry) && !deadline.isExpired()) {
+            lookup = lookupInDatabase(query, lookup.entry);
+        }
+        if (lookup.result != null) {
+            return lookup.result;
+        }
         
-        // Check if we have cached results for this query
+        PlaceResultCache.Entry entry = lookup.entry;
+        cacheStatistics.record(query.createCacheKey(), false);
+        try {
+            return fetchAndStore(query, entry, routeToOwner, deadline);
+        } catch (DeadlineExceededException e) {
+            return fallbackService.fallback(query);
+        }
+    }
+
+    /**
+     * Fetch what the cache lacks, from the key's owner or Google, and store it. Runs on the
+     * calling thread; the call to the owner times out at the deadline, but a Google call this
+     * thread makes runs to completion, so what it bills for is cached.
+     */
+    private PlaceSearchResult fetchAndStore(PlaceSearchQuery query, PlaceResultCache.Entry entry,
+                                            boolean routeToOwner, RequestDeadline deadline) {
+        if (routeToOwner) {
+            PlaceSearchResult fromOwner = fetchFromOwner(query, deadline);
+            if (fromOwner != null) {
+                return fromOwner;
+            }
+        }
+        List<Place> places = fetchUpstream(query, entry, deadline);
+        return storeFetched(query, entry, places);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getNearbyPlaces(PlaceSearchQuery)}.
+     * In-memory hits complete immediately; otherwise the database lookup (and persistence, when
+     * write-behind is disabled) run on the database executor and the Google call on the upstream executor, so the calling
+     * (servlet) thread is released. The future fails with a RejectedExecutionException when
+     * either executor is saturated.
+     *
+     * @param query The search query with location, radius, requested fields, types and ordering
+     * @return Future completing with the places for the query, or failing with an
+     * UpstreamUnavailableException as {@link #getNearbyPlaces(PlaceSearchQuery)} would throw
+     */
+    public CompletableFuture<PlaceSearchResult> getNearbyPlacesAsync(PlaceSearchQuery query) {
+        return getNearbyPlacesAsync(query, RequestDeadline.none());
+    }
+
+    /**
+     * {@link #getNearbyPlacesAsync(PlaceSearchQuery)} within a deadline, which completes the future
+     * with a fallback result as {@link #getNearbyPlaces(PlaceSearchQuery, RequestDeadline)} would return
+     */
+    public CompletableFuture<PlaceSearchResult> getNearbyPlacesAsync(PlaceSearchQuery query, RequestDeadline deadline) {
+        log.info("Searching for places asynchronously with query: {} ({})", query, deadline);
+
+        CacheLookup inMemory = lookupInMemory(query);
+        if (inMemory.result != null) {
+            return CompletableFuture.completedFuture(inMemory.result);
+        }
+
+        CompletableFuture<CacheLookup> cached = needsDatabase(query, inMemory.entry) && !deadline.isExpired()
+                ? CompletableFuture.supplyAsync(() -> lookupInDatabase(query, inMemory.entry), dbExecutor)
+                : CompletableFuture.completedFuture(inMemory);
+        CompletableFuture<PlaceSearchResult> search = cached.thenCompose(lookup -> {
+            if (lookup.result != null) {
+                return CompletableFuture.completedFuture(lookup.result);
+            }
+            PlaceResultCache.Entry entry = lookup.entry;
+            cacheStatistics.record(query.createCacheKey(), false);
+            if (deadline.isExpired()) {
+                return CompletableFuture.completedFuture(fallbackService.fallback(query));
+            }
+            if (!coherence.isOwnedElsewhere(query)) {
+                return fetchAndStoreAsync(query, entry, deadline);
+            }
+            return CompletableFuture.supplyAsync(() -> fetchFromOwner(query, deadline), upstreamExecutor)
+                    .thenCompose(fromOwner -> fromOwner != null
+                            ? CompletableFuture.completedFuture(fromOwner)
+                            : fetchAndStoreAsync(query, entry, deadline));
+        });
+        CompletableFuture<PlaceSearchResult> answered = search.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof DeadlineExceededException) {
+                return fallbackService.fallback(query);
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
+        return deadline.orFallback(answered, () -> fallbackService.fallback(query), deadlineTimer, dbExecutor);
+    }
+
+    private CompletableFuture<PlaceSearchResult> fetchAndStoreAsync(PlaceSearchQuery query, PlaceResultCache.Entry entry,
+                                                                    RequestDeadline deadline) {
+        CompletableFuture<List<Place>> fetched = CompletableFuture
+                .supplyAsync(() -> fetchUpstream(query, entry, deadline), upstreamExecutor);
+        // With write-behind, storing only touches memory and can finish on the upstream thread
+        return writeBehind.isEnabled()
+                ? fetched.thenApply(places -> storeFetched(query, entry, places))
+                : fetched.thenApplyAsync(places -> storeFetched(query, entry, places), dbExecutor);
+    }
+
+    /**
+     * Whether the query can be answered from memory without a database or Google call.
+     * Unlike a search, this records no cache statistics.
+     */
+    public boolean isCachedInMemory(PlaceSearchQuery query) {
+        PlaceResultCache.Entry entry = resultCache.get(query);
+        if (entry != null && entry.covers(query.getRequiredFieldMask())) {
+            return true;
+        }
+        if (query.hasIncludedTypes()) {
+            PlaceResultCache.Entry allTypes = resultCache.get(query.withoutIncludedTypes());
+            return allTypes != null && allTypes.isComplete()
+                    && allTypes.covers(query.getRequiredFieldMask() | PlaceField.PRIMARY_TYPE.bit());
+        }
+        return false;
+    }
+
+    /**
+     * Answer from the in-memory cache: the query's own entry, for a type-filtered query
+     * a complete all-types entry, or a negative entry for a search known to be empty
+     */
+    private CacheLookup lookupInMemory(PlaceSearchQuery query) {
+        PlaceResultCache.Entry entry = resultCache.get(query);
+        if (entry != null && entry.covers(query.getRequiredFieldMask())) {
+            return CacheLookup.hit(toCachedResult(query, entry));
+        }
+        if (query.hasIncludedTypes()) {
+            PlaceSearchResult filtered = filterAllTypes(query, resultCache.get(query.withoutIncludedTypes()));
+            if (filtered != null) {
+                return CacheLookup.hit(filtered);
+            }
+        }
+        if (entry == null && emptyResults.contains(query)) {
+            log.debug("Search is cached as empty");
+            cacheStatistics.record(query.createCacheKey(), true);
+            return CacheLookup.hit(toResult(query, Collections.emptyList(), true));
+        }
+        return CacheLookup.miss(entry);
+    }
+
+    /**
+     * Whether the database may hold what memory lacked. Type-filtered results are only
+     * kept in memory, so for those only the all-types entry is looked up.
+     */
+    private boolean needsDatabase(PlaceSearchQuery query, PlaceResultCache.Entry entry) {
+        if (query.hasIncludedTypes()) {
+            return resultCache.get(query.withoutIncludedTypes()) == null;
+        }
+        return entry == null;
+    }
+
+    /**
+     * Answer from the database cache, loading what is found into memory
+     */
+    private CacheLookup lookupInDatabase(PlaceSearchQuery query, PlaceResultCache.Entry entry) {
+        if (query.hasIncludedTypes()) {
+            PlaceSearchResult filtered = filterAllTypes(query, loadFromDatabase(query.withoutIncludedTypes()));
+            return filtered != null ? CacheLookup.hit(filtered) : CacheLookup.miss(entry);
+        }
+        PlaceResultCache.Entry loaded = loadFromDatabase(query);
+        if (loaded != null && loaded.covers(query.getRequiredFieldMask())) {
+            return CacheLookup.hit(toCachedResult(query, loaded));
+        }
+        return CacheLookup.miss(loaded);
+    }
+
+    /**
+     * Filter a complete all-types entry on primary type
+     *
+     * @return The filtered result, or null if the entry cannot answer the query
+     */
+    private PlaceSearchResult filterAllTypes(PlaceSearchQuery query, PlaceResultCache.Entry allTypes) {
+        if (allTypes == null || !allTypes.isComplete()
+                || !allTypes.covers(query.getRequiredFieldMask() | PlaceField.PRIMARY_TYPE.bit())) {
+            return null;
+        }
+        List<Place> filtered = allTypes.filterByPrimaryType(query.getIncludedTypes());
+        log.debug("Filtered {} of {} cached places by type", filtered.size(), allTypes.getCount());
+        cacheStatistics.record(query.createCacheKey(), true);
+        return toResult(query, filtered, true);
+    }
+
+    private PlaceSearchResult toCachedResult(PlaceSearchQuery query, PlaceResultCache.Entry entry) {
+        log.debug("Serving {} places for query from cache", entry.getCount());
+        cacheStatistics.record(query.createCacheKey(), true);
+        return toResult(query, entry, true);
+    }
+
+    /**
+     * Ask the node owning the query's key, keeping its answer in memory only: the owner has
+     * already stored it in the database
+     *
+     * @return The result, or null if this node owns the key or the owner did not answer
+     */
+    private PlaceSearchResult fetchFromOwner(PlaceSearchQuery query, RequestDeadline deadline) {
+        CacheCoherenceService.PeerResult owned = coherence.fetchFromOwner(query, deadline);
+        if (owned == null) {
+            return null;
+        }
+        if (owned.getPlaces().isEmpty()) {
+            emptyResults.put(query);
+            return toResult(query, Collections.emptyList(), false);
+        }
+        return toResult(query, resultCache.put(query, owned.getPlaces(), owned.getFieldMask(), owned.isComplete()), false);
+    }
+
+    /**
+     * Call Google for what the cache lacks. Empty results are remembered in the negative cache;
+     * failures put the key into backoff, during which Google is not called for it at all.
+     * When a cached entry exists it is served as it is instead of failing the request.
+     * Concurrent fetches of the same key and fields share one Google call.
+     *
+     * @param deadline Google is not called past it, nor another request's call for the key waited for
+     * @return The fetched places; empty if Google found none or a cached entry is to be served
+     * @throws UpstreamUnavailableException if there is no entry and Google failed or is backing off
+     * @throws PlacesApiException if Google rejected the search as invalid
+     * @throws DeadlineExceededException if the deadline passed first
+     */
+    private List<Place> fetchUpstream(PlaceSearchQuery query, PlaceResultCache.Entry entry, RequestDeadline deadline) {
+        String key = query.createCacheKey();
+        long backoffMillis = upstreamBackoff.remainingMillis(key);
+        if (backoffMillis > 0) {
+            log.info("Google is backing off for {} for another {} ms", key, backoffMillis);
+            return unavailable(entry, new UpstreamUnavailableException(
+                    "Google Places API is backing off for this search", backoffMillis, null));
+        }
+
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException("Deadline passed before calling Google", null);
+        }
+        PlaceSearchQuery upstream = upstreamQuery(query, entry);
+        try {
+            List<Place> places = coherence.coalesce("upstream:" + key + "#" + upstream.getFieldMask(),
+                    () -> fetchFromGoogle(key, upstream, deadline), deadline);
+            if (places.isEmpty() && entry == null) {
+                emptyResults.put(query);
+            }
+            return places;
+        } catch (PlacesApiException e) {
+            if (e.isClientError()) {
+                throw e;
+            }
+            return unavailable(entry, new UpstreamUnavailableException(
+                    "Google Places API request failed", upstreamBackoff.remainingMillis(key), e));
+        }
+    }
+
+    /**
+     * One Google call, recorded in the key's backoff and announced to the other nodes. A request
+     * Google rejects as invalid is not a failure of Google and does not back off.
+     */
+    private List<Place> fetchFromGoogle(String key, PlaceSearchQuery upstream, RequestDeadline deadline) {
+        try {
+            List<Place> places = googlePlacesService.fetchNearbyPlaces(upstream, deadline);
+            upstreamBackoff.recordSuccess(key);
+            coherence.announceFill(upstream);
+            return places;
+        } catch (PlacesApiException e) {
+            if (e.isClientError()) {
+                log.warn("Google Places API rejected the search for {}: {}", key, e.getCause().toString());
+                throw e;
+            }
+            long retryAfterMillis = upstreamBackoff.recordFailure(key);
+            log.warn("Google Places API failed for {}, backing off for {} ms", key, retryAfterMillis);
+            throw e;
+        }
+    }
+
+    private static List<Place> unavailable(PlaceResultCache.Entry entry, UpstreamUnavailableException e) {
+        if (entry == null) {
+            throw e;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * The query to send upstream: the requested fields for a cold query, or only the
+     * fields the cached entry is missing (plus the id to merge on)
+     */
+    private static PlaceSearchQuery upstreamQuery(PlaceSearchQuery query, PlaceResultCache.Entry entry) {
+        int requested = query.getRequiredFieldMask();
+        PlaceSearchQuery upstream = new PlaceSearchQuery(query.getLongitude(), query.getLatitude(), query.getRadius());
+        upstream.setIncludedTypes(query.getIncludedTypes());
+        if (entry == null) {
+            upstream.setFieldMask(requested);
+        } else {
+            upstream.setFieldMask(PlaceField.ID.bit() | (requested & ~entry.getFieldMask()));
+            log.info("Cached entry lacks fields, fetching only {}",
+                    PlaceField.toNearbySearchFieldMask(upstream.getFieldMask()));
+        }
+        return upstream;
+    }
+
+    /**
+     * Persist freshly fetched places, merging them into the cached entry they complete.
+     * Type-filtered results are kept in memory only: rows are keyed by place id, so saving
+     * them would move places out of the all-types rows of the same location.
+     */
+    private PlaceSearchResult storeFetched(PlaceSearchQuery query, PlaceResultCache.Entry entry, List<Place> fetched) {
+        int requested = query.getRequiredFieldMask();
+        boolean complete = fetched.size() < GooglePlacesService.MAX_RESULT_COUNT;
+        if (entry == null) {
+            if (!query.hasIncludedTypes()) {
+                saveToCache(fetched);
+            }
+            if (fetched.isEmpty()) {
+                return toResult(query, fetched, false);
+            }
+            return toResult(query, resultCache.put(query, fetched, requested, complete), false);
+        }
+
+        if (fetched.isEmpty()) {
+            log.warn("Missing fields could not be fetched, serving cached places as they are");
+            return toResult(query, entry, true);
+        }
+
+        int fetchedMask = PlaceField.ID.bit() | (requested & ~entry.getFieldMask());
+        int mergedMask = entry.getFieldMask() | fetchedMask;
+        List<Place> merged = mergeFields(entry.getPlaces(), fetched, fetchedMask, mergedMask);
+        if (!query.hasIncludedTypes()) {
+            saveToCache(merged);
+        }
+        return toResult(query, resultCache.put(query, merged, mergedMask, entry.isComplete() && complete), false);
+    }
+
+    /**
+     * Result for a cache entry. Unranked queries get the entry's pre-serialized JSON.
+     */
+    private PlaceSearchResult toResult(PlaceSearchQuery query, PlaceResultCache.Entry entry, boolean fromCache) {
+        if (query.isRanked()) {
+            return toResult(query, entry.getPlaces(), fromCache);
+        }
+        return new PlaceSearchResult(entry.getPlaces(),
+                resultCache.getJson(entry, query.getFieldMaskOrAll()), fromCache);
+    }
+
+    /**
+     * Result for a list of places, ranked and cut to the query's limit. Only the selected
+     * places are serialized, in the requested fields.
+     */
+    private PlaceSearchResult toResult(PlaceSearchQuery query, List<Place> places, boolean fromCache) {
+        List<Place> selected = query.isRanked() ? placeRanker.rank(places, query) : places;
+        byte[] json = selected.isEmpty() ? EMPTY_JSON_ARRAY : resultCache.serialize(selected, query.getFieldMaskOrAll());
+        return new PlaceSearchResult(selected, json, fromCache);
+    }
+
+    /**
+     * Merge freshly fetched fields into copies of the cached places, matching by id.
+     * Cached places missing from the fetch keep what they had; fetched places that were not
+     * cached are appended. Cached instances are shared with concurrent readers, so they are
+     * copied rather than updated in place.
+     */
+    private static List<Place> mergeFields(List<Place> cached, List<Place> fetched, int fetchedMask, int mergedMask) {
+        Map<String, Place> fetchedById = new LinkedHashMap<>();
+        for (Place place : fetched) {
+            fetchedById.put(place.getId(), place);
+        }
+
+        List<Place> merged = new ArrayList<>(Math.max(cached.size(), fetched.size()));
+        for (Place cachedPlace : cached) {
+            Place place = new Place();
+            PlaceField.copy(cachedPlace, place, PlaceField.ALL);
+            place.setQueryLongitude(cachedPlace.getQueryLongitude());
+            place.setQueryLatitude(cachedPlace.getQueryLatitude());
+            place.setQueryRadius(cachedPlace.getQueryRadius());
+            place.setQueryResultCount(cachedPlace.getQueryResultCount());
+            place.setCreatedAt(cachedPlace.getCreatedAt());
+            place.setRawResponse(cachedPlace.getRawResponse());
+
+            Place fresh = fetchedById.remove(cachedPlace.getId());
+            if (fresh != null) {
+                PlaceField.copy(fresh, place, fetchedMask);
+                place.setRawResponse(mergeRawResponse(cachedPlace.getRawResponse(), fresh.getRawResponse()));
+            }
+            place.setFieldMask(mergedMask);
+            merged.add(place);
+        }
+        for (Place fresh : fetchedById.values()) {
+            fresh.setFieldMask(mergedMask);
+            merged.add(fresh);
+        }
+        return merged;
+    }
+
+    private static String mergeRawResponse(String cached, String fetched) {
+        if (cached == null) {
+            return fetched;
+        }
+        if (fetched == null) {
+            return cached;
+        }
+        JsonObject merged = JsonParser.parseString(cached).getAsJsonObject();
+        for (Map.Entry<String, JsonElement> field : JsonParser.parseString(fetched).getAsJsonObject().entrySet()) {
+            merged.add(field.getKey(), field.getValue());
+        }
+        return merged.toString();
+    }
+
+    /**
+     * Load the database cache entry for a query into memory
+     *
+     * @return The entry, or null if the database holds nothing for the query
+     */
+    private PlaceResultCache.Entry loadFromDatabase(PlaceSearchQuery query) {
+        List<Place> cachedResults = findCached(query);
+        if (cachedResults.isEmpty()) {
+            return null;
+        }
+        int fieldMask = PlaceField.ALL;
+        int resultCount = cachedResults.size();
+        for (Place place : cachedResults) {
+            fieldMask &= place.getFieldMaskOrAll();
+            if (place.getQueryResultCount() != null) {
+                resultCount = place.getQueryResultCount();
+            }
+        }
+        return resultCache.put(query, cachedResults, fieldMask, resultCount < GooglePlacesService.MAX_RESULT_COUNT);
+    }
+
+    /**
+     * Outcome of a cache lookup: a result to return, or the entry (possibly null) that
+     * has to be fetched or completed upstream
+     */
+    private static final class CacheLookup {
+        private final PlaceSearchResult result;
+        private final PlaceResultCache.Entry entry;
+
+        private CacheLookup(PlaceSearchResult result, PlaceResultCache.Entry entry) {
+            this.result = result;
+            this.entry = entry;
+        }
+
+        static CacheLookup hit(PlaceSearchResult result) {
+            return new CacheLookup(result, null);
+        }
+
+        static CacheLookup miss(PlaceResultCache.Entry entry) {
+            return new CacheLookup(null, entry);
+        }
+    }
+
+    /**
+     * Check if we have cached results for this query
+     */
+    private List<Place> findCached(PlaceSearchQuery query) {
         List<Place> cachedResults = placeRepository.findBySearchParameters(
                 query.getLongitude(), 
                 query.getLatitude(), 
                 query.getRadius()
         );
-        
         if (!cachedResults.isEmpty()) {
             log.info("Found {} cached places for query", cachedResults.size());
-            return cachedResults;
         }
-        
-        log.info("No cached results found, fetching from Google Places API");
-        
-        // Fetch from Google Places API
-        List<Place> places = googlePlacesService.fetchNearbyPlaces(query);
-        
-        // Save to cache if we got results
+        return cachedResults;
+    }
+
+    /**
+     * Save to cache if we got results; the write is queued and happens after the response
+     */
+    private void saveToCache(List<Place> places) {
         if (!places.isEmpty()) {
             log.info("Saving {} new places to cache", places.size());
-            placeRepository.saveAll(places);
+            writeBehind.enqueue(places);
         }
-        
-        return places;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.localscopelocal.service;
+
+/**
+ * Layout of place cache snapshot files (version 1).
+ *
+ * <pre>
+ * header:  int magic "LSPS", int version, long createdAtMillis
+ * records: byte tag, then
+ *   TAG_QUERY  double longitude, double latitude, int radius, int resultCount (-1 if unknown);
+ *              defines the next query id, starting at 1
+ *   TAG_TYPE   string; defines the next primary type id, starting at 1
+ *   TAG_PLACE  varint presence bits, varint query id (0 = none), string id, then the fields
+ *              flagged in presence, in bit order; primaryType as a varint type id,
+ *              createdAt as long epoch millis (UTC)
+ *   TAG_END    long place count, int query count
+ * </pre>
+ * Numbers are big-endian; strings are a varint byte length followed by UTF-8 bytes.
+ * Dictionary entries always precede the first record that uses them.
+ */
+final class PlaceSnapshotFormat {
+
+    /** Place table columns, in the order rows are exported and imported */
+    static final String[] COLUMNS = {
+            "id", "display_name", "formatted_address", "rating", "primary_type", "website_uri",
+            "latitude", "longitude", "raw_response", "query_longitude", "query_latitude", "query_radius",
+            "query_result_count", "created_at", "field_mask"
+    };
+
+    /** Positions of the location columns in {@link #COLUMNS} */
+    static final int LATITUDE = 6;
+    static final int LONGITUDE = 7;
+
+    static final int MAGIC = 0x4C535053; // "LSPS"
+    static final int VERSION = 1;
+
+    static final byte TAG_END = 0;
+    static final byte TAG_QUERY = 1;
+    static final byte TAG_TYPE = 2;
+    static final byte TAG_PLACE = 3;
+
+    static final int HAS_DISPLAY_NAME = 1;
+    static final int HAS_FORMATTED_ADDRESS = 1 << 1;
+    static final int HAS_RATING = 1 << 2;
+    static final int HAS_PRIMARY_TYPE = 1 << 3;
+    static final int HAS_WEBSITE_URI = 1 << 4;
+    static final int HAS_LOCATION = 1 << 5;
+    static final int HAS_RAW_RESPONSE = 1 << 6;
+    static final int HAS_CREATED_AT = 1 << 7;
+    static final int HAS_FIELD_MASK = 1 << 8;
+
+    private PlaceSnapshotFormat() {
+    }
+}
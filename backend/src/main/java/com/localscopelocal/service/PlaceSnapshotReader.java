@@ -0,0 +1,187 @@
+package com.localscopelocal.service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a place cache snapshot (see {@link PlaceSnapshotFormat}) through memory-mapped I/O.
+ * The file is mapped in windows of up to 1 GB, so snapshots larger than one mapping can be read.
+ */
+final class PlaceSnapshotReader implements Closeable {
+
+    private static final long MAX_WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long createdAtMillis;
+    private final List<Object[]> queries = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+    private long windowStart;
+    private MappedByteBuffer buffer;
+    private long places;
+
+    PlaceSnapshotReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        map(0);
+        ensure(16);
+        if (buffer.getInt() != PlaceSnapshotFormat.MAGIC) {
+            close();
+            throw new IOException("Not a place cache snapshot: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != PlaceSnapshotFormat.VERSION) {
+            close();
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        this.createdAtMillis = buffer.getLong();
+    }
+
+    long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    long getPlaces() {
+        return places;
+    }
+
+    int getQueries() {
+        return queries.size();
+    }
+
+    /**
+     * Read the next place into a row with one value per {@link PlaceSnapshotFormat#COLUMNS} entry
+     *
+     * @return False at the end of the snapshot
+     */
+    boolean next(Object[] row) throws IOException {
+        while (true) {
+            ensure(1);
+            byte tag = buffer.get();
+            switch (tag) {
+                case PlaceSnapshotFormat.TAG_QUERY:
+                    ensure(24);
+                    double longitude = buffer.getDouble();
+                    double latitude = buffer.getDouble();
+                    int radius = buffer.getInt();
+                    int resultCount = buffer.getInt();
+                    queries.add(new Object[]{longitude, latitude, radius, resultCount >= 0 ? resultCount : null});
+                    break;
+                case PlaceSnapshotFormat.TAG_TYPE:
+                    types.add(readString());
+                    break;
+                case PlaceSnapshotFormat.TAG_PLACE:
+                    readPlace(row);
+                    places++;
+                    return true;
+                case PlaceSnapshotFormat.TAG_END:
+                    ensure(12);
+                    long expectedPlaces = buffer.getLong();
+                    int expectedQueries = buffer.getInt();
+                    if (expectedPlaces != places || expectedQueries != queries.size()) {
+                        throw new IOException("Snapshot is inconsistent: trailer says " + expectedPlaces
+                                + " places and " + expectedQueries + " queries, read " + places + " and " + queries.size());
+                    }
+                    return false;
+                default:
+                    throw new IOException("Corrupt snapshot: unknown record tag " + tag);
+            }
+        }
+    }
+
+    private void readPlace(Object[] row) throws IOException {
+        int presence = readVarInt();
+        int queryId = readVarInt();
+        row[0] = readString();
+        row[1] = (presence & PlaceSnapshotFormat.HAS_DISPLAY_NAME) != 0 ? readString() : null;
+        row[2] = (presence & PlaceSnapshotFormat.HAS_FORMATTED_ADDRESS) != 0 ? readString() : null;
+        row[3] = (presence & PlaceSnapshotFormat.HAS_RATING) != 0 ? readDouble() : null;
+        row[4] = (presence & PlaceSnapshotFormat.HAS_PRIMARY_TYPE) != 0 ? types.get(readVarInt() - 1) : null;
+        row[5] = (presence & PlaceSnapshotFormat.HAS_WEBSITE_URI) != 0 ? readString() : null;
+        if ((presence & PlaceSnapshotFormat.HAS_LOCATION) != 0) {
+            row[6] = readDouble();
+            row[7] = readDouble();
+        } else {
+            row[6] = null;
+            row[7] = null;
+        }
+        row[8] = (presence & PlaceSnapshotFormat.HAS_RAW_RESPONSE) != 0 ? readString() : null;
+
+        Object[] query = queryId > 0 ? queries.get(queryId - 1) : null;
+        row[9] = query != null ? query[0] : null;
+        row[10] = query != null ? query[1] : null;
+        row[11] = query != null ? query[2] : null;
+        row[12] = query != null ? query[3] : null;
+
+        if ((presence & PlaceSnapshotFormat.HAS_CREATED_AT) != 0) {
+            ensure(8);
+            LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+            row[13] = Timestamp.valueOf(createdAt);
+        } else {
+            row[13] = null;
+        }
+        row[14] = (presence & PlaceSnapshotFormat.HAS_FIELD_MASK) != 0 ? readVarInt() : null;
+    }
+
+    private double readDouble() throws IOException {
+        ensure(8);
+        return buffer.getDouble();
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        ensure(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            ensure(1);
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt snapshot: varint too long");
+    }
+
+    /**
+     * Make sure the current window holds at least n more bytes, moving it forward if needed
+     */
+    private void ensure(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+        long position = windowStart + buffer.position();
+        if (size - position < n) {
+            throw new EOFException("Snapshot is truncated at byte " + position);
+        }
+        map(position);
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_WINDOW, size - position));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,255 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.GeoHash;
+import com.localscopelocal.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Export and import of the place cache as binary snapshot files, to bootstrap new nodes
+ * without an empty cache or a copied database file.
+ *
+ * Export streams the Place table through a single forward-only query, which H2 answers from a
+ * consistent MVCC snapshot without locking the table, so searches keep being served while a
+ * backup is written. The file is written under a temporary name and moved into place when
+ * complete. Import reads the file through memory-mapped I/O and merges rows in JDBC batches.
+ */
+@Service
+public class PlaceSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceSnapshotService.class);
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlaceWriteBehindQueue writeBehind;
+    private final PlaceRepository placeRepository;
+    private final Path directory;
+    private final int importBatchSize;
+    private final String importOnStartup;
+
+    @Autowired
+    public PlaceSnapshotService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                PlaceWriteBehindQueue writeBehind, PlaceRepository placeRepository,
+                                @Value("${places.snapshot.dir:snapshots}") String directory,
+                                @Value("${places.snapshot.import.batch-size:1000}") int importBatchSize,
+                                @Value("${places.snapshot.import-on-startup:}") String importOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.writeBehind = writeBehind;
+        this.placeRepository = placeRepository;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.importBatchSize = importBatchSize;
+        this.importOnStartup = importOnStartup;
+    }
+
+    /**
+     * Load the configured snapshot before the application starts serving, if one is set
+     */
+    @PostConstruct
+    public void importOnStartup() {
+        if (importOnStartup.isEmpty()) {
+            return;
+        }
+        Path file = Paths.get(importOnStartup);
+        if (!Files.exists(file)) {
+            file = resolve(importOnStartup);
+        }
+        log.info("Importing place cache snapshot {} on startup", file);
+        importSnapshot(file);
+    }
+
+    /**
+     * Write the current cache to a new snapshot file in the snapshot directory
+     *
+     * @return Snapshot file, place and query counts, size and duration
+     */
+    public Map<String, Object> exportSnapshot() {
+        long start = System.currentTimeMillis();
+        // Pending write-behind places belong in the backup
+        writeBehind.flush();
+
+        Path file = directory.resolve("places-" + start + SNAPSHOT_SUFFIX);
+        Path temp = directory.resolve("places-" + start + SNAPSHOT_SUFFIX + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            PlaceSnapshotWriter writer;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer = new PlaceSnapshotWriter(out, start);
+                String sql = "SELECT " + String.join(", ", PlaceSnapshotFormat.COLUMNS) + " FROM place";
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    return statement;
+                }, rs -> {
+                    try {
+                        writeRow(writer, rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.close();
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("file", file.getFileName().toString());
+            result.put("places", writer.getPlaces());
+            result.put("queries", writer.getQueries());
+            result.put("bytes", Files.size(file));
+            result.put("durationMillis", System.currentTimeMillis() - start);
+            log.info("Exported place cache snapshot: {}", result);
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            deleteQuietly(temp);
+            throw new IllegalStateException("Could not write snapshot " + file, e);
+        }
+    }
+
+    private static void writeRow(PlaceSnapshotWriter writer, ResultSet rs) throws SQLException, IOException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        writer.writePlace(
+                rs.getString("id"),
+                rs.getString("display_name"),
+                rs.getString("formatted_address"),
+                rs.getObject("rating", Double.class),
+                rs.getString("primary_type"),
+                rs.getString("website_uri"),
+                rs.getObject("latitude", Double.class),
+                rs.getObject("longitude", Double.class),
+                rs.getString("raw_response"),
+                rs.getObject("query_longitude", Double.class),
+                rs.getObject("query_latitude", Double.class),
+                rs.getObject("query_radius", Integer.class),
+                rs.getObject("query_result_count", Integer.class),
+                createdAt != null ? createdAt.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli() : null,
+                rs.getObject("field_mask", Integer.class));
+    }
+
+    /**
+     * Import a snapshot file from the snapshot directory
+     *
+     * @param name File name as returned by export or {@link #listSnapshots()}
+     */
+    public Map<String, Object> importSnapshot(String name) {
+        return importSnapshot(resolve(name));
+    }
+
+    /**
+     * Merge all places of a snapshot into the cache; places already cached are overwritten
+     *
+     * @return Place and query counts and duration
+     */
+    public Map<String, Object> importSnapshot(Path file) {
+        long start = System.currentTimeMillis();
+        // Into an empty table a plain insert is enough and much cheaper than a merge. Counted through
+        // JPA, which also waits for the schema to exist when JPA bootstraps in the background.
+        boolean empty = placeRepository.count() == 0;
+        // The geohash is derived from the location, so it is computed here rather than stored in the file
+        String columns = String.join(", ", PlaceSnapshotFormat.COLUMNS) + ", geohash";
+        String placeholders = String.join(", ", Collections.nCopies(PlaceSnapshotFormat.COLUMNS.length + 1, "?"));
+        String sql = empty
+                ? "INSERT INTO place (" + columns + ") VALUES (" + placeholders + ")"
+                : "MERGE INTO place (" + columns + ") KEY (id) VALUES (" + placeholders + ")";
+
+        try (PlaceSnapshotReader reader = new PlaceSnapshotReader(file)) {
+            List<Object[]> batch = new ArrayList<>(importBatchSize);
+            Object[] row = new Object[PlaceSnapshotFormat.COLUMNS.length + 1];
+            while (reader.next(row)) {
+                row[PlaceSnapshotFormat.COLUMNS.length] = GeoHash.of((Double) row[PlaceSnapshotFormat.LATITUDE],
+                        (Double) row[PlaceSnapshotFormat.LONGITUDE]);
+                batch.add(row.clone());
+                if (batch.size() == importBatchSize) {
+                    writeBatch(sql, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(sql, batch);
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("file", file.getFileName().toString());
+            result.put("snapshotCreatedAt", reader.getCreatedAtMillis());
+            result.put("places", reader.getPlaces());
+            result.put("queries", reader.getQueries());
+            result.put("durationMillis", System.currentTimeMillis() - start);
+            log.info("Imported place cache snapshot: {}", result);
+            return result;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Write one batch in its own transaction, so it is committed once rather than per row
+     */
+    private void writeBatch(String sql, List<Object[]> batch) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch));
+    }
+
+    /**
+     * @return Names of the snapshot files in the snapshot directory, newest first
+     */
+    public List<String> listSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SNAPSHOT_SUFFIX))
+                    .sorted(Collections.reverseOrder())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Resolve a snapshot name inside the snapshot directory, rejecting paths that leave it
+     */
+    private Path resolve(String name) {
+        Path file = directory.resolve(name).normalize();
+        if (!file.getParent().equals(directory) || !name.endsWith(SNAPSHOT_SUFFIX)) {
+            throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        }
+        return file;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.localscopelocal.service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a place cache snapshot in the binary format described in {@link PlaceSnapshotFormat}.
+ * Queries and primary types are dictionary-encoded on first use, so the file can be written
+ * in a single pass over the rows.
+ */
+final class PlaceSnapshotWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final Map<QueryKey, Integer> queryIds = new HashMap<>();
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private long places;
+
+    PlaceSnapshotWriter(OutputStream stream, long createdAtMillis) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 20));
+        out.writeInt(PlaceSnapshotFormat.MAGIC);
+        out.writeInt(PlaceSnapshotFormat.VERSION);
+        out.writeLong(createdAtMillis);
+    }
+
+    /**
+     * Append one place row; null arguments are left out of the record
+     */
+    void writePlace(String id, String displayName, String formattedAddress, Double rating, String primaryType,
+                    String websiteUri, Double latitude, Double longitude, String rawResponse,
+                    Double queryLongitude, Double queryLatitude, Integer queryRadius, Integer queryResultCount,
+                    Long createdAtMillis, Integer fieldMask) throws IOException {
+        int queryId = 0;
+        if (queryLongitude != null && queryLatitude != null && queryRadius != null) {
+            queryId = queryId(new QueryKey(queryLongitude, queryLatitude, queryRadius), queryResultCount);
+        }
+        int typeId = primaryType != null ? typeId(primaryType) : 0;
+
+        int presence = 0;
+        presence |= displayName != null ? PlaceSnapshotFormat.HAS_DISPLAY_NAME : 0;
+        presence |= formattedAddress != null ? PlaceSnapshotFormat.HAS_FORMATTED_ADDRESS : 0;
+        presence |= rating != null ? PlaceSnapshotFormat.HAS_RATING : 0;
+        presence |= typeId != 0 ? PlaceSnapshotFormat.HAS_PRIMARY_TYPE : 0;
+        presence |= websiteUri != null ? PlaceSnapshotFormat.HAS_WEBSITE_URI : 0;
+        presence |= latitude != null && longitude != null ? PlaceSnapshotFormat.HAS_LOCATION : 0;
+        presence |= rawResponse != null ? PlaceSnapshotFormat.HAS_RAW_RESPONSE : 0;
+        presence |= createdAtMillis != null ? PlaceSnapshotFormat.HAS_CREATED_AT : 0;
+        presence |= fieldMask != null ? PlaceSnapshotFormat.HAS_FIELD_MASK : 0;
+
+        out.writeByte(PlaceSnapshotFormat.TAG_PLACE);
+        writeVarInt(presence);
+        writeVarInt(queryId);
+        writeString(id);
+        if (displayName != null) {
+            writeString(displayName);
+        }
+        if (formattedAddress != null) {
+            writeString(formattedAddress);
+        }
+        if (rating != null) {
+            out.writeDouble(rating);
+        }
+        if (typeId != 0) {
+            writeVarInt(typeId);
+        }
+        if (websiteUri != null) {
+            writeString(websiteUri);
+        }
+        if ((presence & PlaceSnapshotFormat.HAS_LOCATION) != 0) {
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+        }
+        if (rawResponse != null) {
+            writeString(rawResponse);
+        }
+        if (createdAtMillis != null) {
+            out.writeLong(createdAtMillis);
+        }
+        if (fieldMask != null) {
+            writeVarInt(fieldMask);
+        }
+        places++;
+    }
+
+    private int queryId(QueryKey key, Integer resultCount) throws IOException {
+        Integer existing = queryIds.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int id = queryIds.size() + 1;
+        queryIds.put(key, id);
+        out.writeByte(PlaceSnapshotFormat.TAG_QUERY);
+        out.writeDouble(key.longitude);
+        out.writeDouble(key.latitude);
+        out.writeInt(key.radius);
+        out.writeInt(resultCount != null ? resultCount : -1);
+        return id;
+    }
+
+    private int typeId(String type) throws IOException {
+        Integer existing = typeIds.get(type);
+        if (existing != null) {
+            return existing;
+        }
+        int id = typeIds.size() + 1;
+        typeIds.put(type, id);
+        out.writeByte(PlaceSnapshotFormat.TAG_TYPE);
+        writeString(type);
+        return id;
+    }
+
+    long getPlaces() {
+        return places;
+    }
+
+    int getQueries() {
+        return queryIds.size();
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Write the trailer with the record counts the reader verifies
+     */
+    @Override
+    public void close() throws IOException {
+        out.writeByte(PlaceSnapshotFormat.TAG_END);
+        out.writeLong(places);
+        out.writeInt(queryIds.size());
+        out.close();
+    }
+
+    private static final class QueryKey {
+        private final double longitude;
+        private final double latitude;
+        private final int radius;
+
+        QueryKey(double longitude, double latitude, int radius) {
+            this.longitude = longitude;
+            this.latitude = latitude;
+            this.radius = radius;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey other = (QueryKey) o;
+            return Double.compare(longitude, other.longitude) == 0
+                    && Double.compare(latitude, other.latitude) == 0 && radius == other.radius;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Double.hashCode(longitude) * 31 + Double.hashCode(latitude)) * 31 + radius;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.Place;
+import com.localscopelocal.repository.PlaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind persistence for fetched places, so a cache miss returns as soon as the places
+ * are parsed and held in memory instead of waiting for the database.
+ *
+ * Pending writes are keyed by place id: a place written again before it was flushed replaces
+ * the earlier version, and a background thread saves them in batches. The queue is bounded;
+ * when it is full, the caller writes synchronously instead, which slows producers down to what
+ * the database can absorb. Pending writes are flushed on shutdown.
+ */
+@Component
+public class PlaceWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceWriteBehindQueue.class);
+
+    private final PlaceRepository placeRepository;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    // Insertion-ordered so the oldest writes are flushed first; guarded by this
+    private final LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    // Held while a batch is taken and saved, so a discard waits for the batch it cannot see anymore
+    // and a synchronous write is not overtaken by an older batch
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder synchronousWrites = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    @Autowired
+    public PlaceWriteBehindQueue(PlaceRepository placeRepository,
+                                 @Value("${places.persistence.write-behind.enabled:true}") boolean enabled,
+                                 @Value("${places.persistence.write-behind.capacity:10000}") int capacity,
+                                 @Value("${places.persistence.write-behind.batch-size:200}") int batchSize,
+                                 @Value("${places.persistence.write-behind.flush-interval-ms:200}") long flushIntervalMillis) {
+        this.placeRepository = placeRepository;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Write-behind persistence disabled; places are saved synchronously");
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "places-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Write-behind persistence: capacity {}, batch size {}, flush every {} ms",
+                capacity, batchSize, flushIntervalMillis);
+    }
+
+    /**
+     * Queue places to be saved. Falls back to saving them on the calling thread when
+     * write-behind is disabled, not running, or the queue is full.
+     */
+    public void enqueue(List<Place> places) {
+        if (places.isEmpty()) {
+            return;
+        }
+        if (flusher != null) {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                // Places already pending replace their earlier version and take no extra room
+                int added = 0;
+                for (Place place : places) {
+                    if (!pending.containsKey(place.getId())) {
+                        added++;
+                    }
+                }
+                if (pending.size() + added <= capacity) {
+                    for (Place place : places) {
+                        PendingWrite previous = pending.get(place.getId());
+                        // Replacing keeps the original position and enqueue time, so lag covers the whole wait
+                        pending.put(place.getId(), new PendingWrite(place, previous != null ? previous.enqueuedAtMillis : now));
+                        if (previous != null) {
+                            coalesced.increment();
+                        }
+                    }
+                    enqueued.add(places.size());
+                    return;
+                }
+            }
+            log.warn("Write-behind queue full ({} pending), saving {} places synchronously", getDepth(), places.size());
+            // Ordered with the flusher's batches, and without the older pending versions of these
+            // places, which would otherwise be flushed later over the rows saved here
+            synchronized (flushLock) {
+                synchronized (this) {
+                    for (Place place : places) {
+                        pending.remove(place.getId());
+                    }
+                }
+                synchronousWrites.add(places.size());
+                placeRepository.saveAll(places);
+            }
+            return;
+        }
+        synchronousWrites.add(places.size());
+        placeRepository.saveAll(places);
+    }
+
+    /**
+     * Drop pending writes for places matching the predicate, so invalidated entries
+     * are not written back after they were deleted. A batch being saved is waited for,
+     * so its rows are in the database before the caller deletes them.
+     *
+     * @return Number of writes dropped
+     */
+    public int discardIf(Predicate<Place> predicate) {
+        synchronized (flushLock) {
+            synchronized (this) {
+                int discarded = 0;
+                for (Iterator<PendingWrite> it = pending.values().iterator(); it.hasNext(); ) {
+                    if (predicate.test(it.next().place)) {
+                        it.remove();
+                        discarded++;
+                    }
+                }
+                return discarded;
+            }
+        }
+    }
+
+    /**
+     * Save everything pending, in batches
+     */
+    public void flush() {
+        while (true) {
+            List<PendingWrite> batch;
+            List<Place> places;
+            synchronized (flushLock) {
+                batch = nextBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                places = new ArrayList<>(batch.size());
+                for (PendingWrite write : batch) {
+                    places.add(write.place);
+                }
+                try {
+                    placeRepository.saveAll(places);
+                } catch (RuntimeException e) {
+                    // Cached data can be fetched again, so a failed batch is dropped rather than retried
+                    failed.add(places.size());
+                    log.error("Failed to save {} places from the write-behind queue", places.size(), e);
+                    continue;
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            long lag = now - batch.get(0).enqueuedAtMillis;
+            lastLagMillis.set(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            written.add(places.size());
+            batches.increment();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed", e);
+        }
+    }
+
+    private synchronized List<PendingWrite> nextBatch() {
+        List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        for (Iterator<PendingWrite> it = pending.values().iterator(); it.hasNext() && batch.size() < batchSize; ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+        int depth = getDepth();
+        if (depth > 0) {
+            log.info("Flushing {} pending place writes before shutdown", depth);
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized int getDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return Age of the oldest pending write, 0 if none
+     */
+    public synchronized long getOldestPendingMillis() {
+        Iterator<PendingWrite> it = pending.values().iterator();
+        return it.hasNext() ? System.currentTimeMillis() - it.next().enqueuedAtMillis : 0;
+    }
+
+    /**
+     * Queue depth, write lag and throughput counters for the admin API
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("depth", getDepth());
+        metrics.put("capacity", capacity);
+        metrics.put("oldestPendingMillis", getOldestPendingMillis());
+        metrics.put("lastLagMillis", lastLagMillis.get());
+        metrics.put("maxLagMillis", maxLagMillis.get());
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("coalesced", coalesced.sum());
+        metrics.put("written", written.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("synchronousWrites", synchronousWrites.sum());
+        return metrics;
+    }
+
+    private static final class PendingWrite {
+        private final Place place;
+        private final long enqueuedAtMillis;
+
+        PendingWrite(Place place, long enqueuedAtMillis) {
+            this.place = place;
+            this.enqueuedAtMillis = enqueuedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.localscopelocal.service;
+
+/**
+ * Thrown when a call to the Google Places API fails, as opposed to succeeding with no places
+ */
+public class PlacesApiException extends RuntimeException {
+
+    private final boolean clientError;
+
+    public PlacesApiException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    /**
+     * @param clientError Whether Google rejected the request itself as invalid (HTTP 400), e.g. an
+     *                    unknown place type, so it would fail the same way again
+     */
+    public PlacesApiException(String message, Throwable cause, boolean clientError) {
+        super(message, cause);
+        this.clientError = clientError;
+    }
+
+    public boolean isClientError() {
+        return clientError;
+    }
+}
@@ -39,16 +39,16 @@ public class RateLimitService {
     private int burstAllowance;
 
     // In-memory storage for rate limiting counters
-    private final ConcurrentMap<String, RateLimitCounter> ipCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ClientKey, RateLimitCounter> ipCounters = new ConcurrentHashMap<>();
     private final RateLimitCounter globalCounter = new RateLimitCounter();
 
     /**
-     * Check if the request from the given IP address is allowed
+     * Check if the request from the given client is allowed
      *
-     * @param ipAddress The IP address making the request
+     * @param ipAddress The client making the request (an address or subnet key)
      * @return RateLimitResult indicating if the request is allowed and remaining quota
      */
-    public RateLimitResult isRequestAllowed(String ipAddress) {
+    public RateLimitResult isRequestAllowed(ClientKey ipAddress) {
         if (!rateLimitEnabled) {
             return new RateLimitResult(true, ipRequestLimit, globalRequestLimit, "Rate limiting disabled");
         }
@@ -83,8 +83,8 @@ public class RateLimitService {
         if (globalCounter.getCount() >= globalRequestLimit + burstAllowance) {
             log.warn("Global rate limit exceeded: {} requests in {} minutes", 
                     globalCounter.getCount(), globalWindowMinutes);
-            return new RateLimitResult(false, 0, 0, 
-                    "Global rate limit exceeded. Try again later.");
+            return new RateLimitResult(false, 0, 0,
+                    "Global rate limit exceeded. Try again later.", true);
         }
         
         return new RateLimitResult(true, 0, 
@@ -94,7 +94,7 @@ public class RateLimitService {
     /**
      * Check IP-specific rate limit
      */
-    private RateLimitResult checkIpRateLimit(String ipAddress) {
+    RateLimitResult checkIpRateLimit(ClientKey ipAddress) {
         RateLimitCounter counter = getIpCounter(ipAddress);
         
         if (counter.getCount() >= ipRequestLimit + burstAllowance) {
@@ -112,7 +112,7 @@ public class RateLimitService {
     /**
      * Increment both IP and global counters
      */
-    private void incrementCounters(String ipAddress) {
+    private void incrementCounters(ClientKey ipAddress) {
         getIpCounter(ipAddress).increment();
         globalCounter.increment();
         
@@ -123,7 +123,7 @@ public class RateLimitService {
     /**
      * Get or create counter for IP address
      */
-    private RateLimitCounter getIpCounter(String ipAddress) {
+    private RateLimitCounter getIpCounter(ClientKey ipAddress) {
         return ipCounters.computeIfAbsent(ipAddress, k -> new RateLimitCounter());
     }
 
@@ -154,6 +154,36 @@ public class RateLimitService {
         });
     }
 
+    public boolean isEnabled() {
+        return rateLimitEnabled;
+    }
+
+    /**
+     * Requests counted against the global limit in the current window
+     */
+    int getGlobalCount() {
+        return globalCounter.getCount();
+    }
+
+    int getGlobalLimit() {
+        return globalRequestLimit;
+    }
+
+    /**
+     * Requests the global window accepts in total, including the burst allowance
+     */
+    int getGlobalCapacity() {
+        return globalRequestLimit + burstAllowance;
+    }
+
+    /**
+     * Time until the global window resets; zero or less once it has expired but not yet been reset
+     */
+    long getGlobalWindowRemainingMillis() {
+        LocalDateTime windowEnd = globalCounter.getLastReset().plus(globalWindowMinutes, ChronoUnit.MINUTES);
+        return ChronoUnit.MILLIS.between(LocalDateTime.now(), windowEnd);
+    }
+
     /**
      * Get current rate limit status for monitoring
      */
@@ -201,19 +231,39 @@ public class RateLimitService {
         private final int remainingIpRequests;
         private final int remainingGlobalRequests;
         private final String message;
+        private final boolean globalLimited;
+        private final boolean deadlineExceeded;
 
         public RateLimitResult(boolean allowed, int remainingIpRequests, 
                              int remainingGlobalRequests, String message) {
+            this(allowed, remainingIpRequests, remainingGlobalRequests, message, false);
+        }
+
+        public RateLimitResult(boolean allowed, int remainingIpRequests,
+                             int remainingGlobalRequests, String message, boolean globalLimited) {
+            this(allowed, remainingIpRequests, remainingGlobalRequests, message, globalLimited, false);
+        }
+
+        /**
+         * @param deadlineExceeded Whether the request's own deadline passed before it was admitted,
+         *                         so it may only be answered from the cache
+         */
+        public RateLimitResult(boolean allowed, int remainingIpRequests, int remainingGlobalRequests,
+                             String message, boolean globalLimited, boolean deadlineExceeded) {
             this.allowed = allowed;
             this.remainingIpRequests = remainingIpRequests;
             this.remainingGlobalRequests = remainingGlobalRequests;
             this.message = message;
+            this.globalLimited = globalLimited;
+            this.deadlineExceeded = deadlineExceeded;
         }
 
         public boolean isAllowed() { return allowed; }
         public int getRemainingIpRequests() { return remainingIpRequests; }
         public int getRemainingGlobalRequests() { return remainingGlobalRequests; }
         public String getMessage() { return message; }
+        public boolean isGlobalLimited() { return globalLimited; }
+        public boolean isDeadlineExceeded() { return deadlineExceeded; }
     }
 
     /**
@@ -0,0 +1,105 @@
+package com.localscopelocal.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which a request has to be answered, carried through every stage of a search.
+ * Stages check it before they start and wait no longer than the time it leaves.
+ */
+public final class RequestDeadline {
+
+    private static final RequestDeadline NONE = new RequestDeadline(Long.MAX_VALUE);
+
+    private final long deadlineMillis;
+
+    private RequestDeadline(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * @return A deadline that never passes
+     */
+    public static RequestDeadline none() {
+        return NONE;
+    }
+
+    /**
+     * @return A deadline the given time from now
+     */
+    public static RequestDeadline after(long millis) {
+        return new RequestDeadline(System.currentTimeMillis() + millis);
+    }
+
+    public boolean isBounded() {
+        return deadlineMillis != Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return isBounded() && System.currentTimeMillis() >= deadlineMillis;
+    }
+
+    /**
+     * @return Time left, zero once passed, Long.MAX_VALUE if unbounded
+     */
+    public long remainingMillis() {
+        return isBounded() ? Math.max(0, deadlineMillis - System.currentTimeMillis()) : Long.MAX_VALUE;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * The work's outcome if it completes in time, otherwise the fallback's. The work is not
+     * cancelled and may still finish afterwards, e.g. to fill a cache.
+     *
+     * @param timer Starts the fallback when the deadline passes
+     * @param executor Where the fallback runs
+     */
+    public <T> CompletableFuture<T> orFallback(CompletableFuture<T> work, Supplier<T> fallback,
+                                               ScheduledExecutorService timer, Executor executor) {
+        if (!isBounded() || work.isDone()) {
+            return work;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> scheduled;
+        try {
+            scheduled = timer.schedule(() -> {
+                try {
+                    CompletableFuture.supplyAsync(fallback, executor).whenComplete((value, error) -> {
+                        if (error == null) {
+                            result.complete(value);
+                        } else {
+                            result.completeExceptionally(error);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    result.completeExceptionally(e);
+                }
+            }, remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: no fallback, the work answers on its own
+            return work;
+        }
+        work.whenComplete((value, error) -> {
+            scheduled.cancel(false);
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return isBounded() ? remainingMillis() + " ms left" : "no deadline";
+    }
+}
@@ -0,0 +1,201 @@
+package com.localscopelocal.service;
+
+import com.localscopelocal.model.GeoHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where searches are made, as counts of cache hits and misses per geohash cell.
+ *
+ * Request threads only write the search location into a fixed-size ring buffer: one atomic
+ * increment to claim a slot and three volatile writes, with no locks and no allocation. A
+ * background task drains the buffer into the per-cell counts. If searches outpace the drain,
+ * the oldest unread samples are overwritten and counted as dropped rather than slowing requests.
+ */
+@Component
+public class SearchHeatmap {
+
+    // Slot states: the published marker is (sequence + 1) << 1 | hit, so 0 means being written
+    private static final long WRITING = 0;
+
+    // Consecutive sequences go to slots this far apart (odd, so every slot is used), keeping
+    // request threads that record at the same time off each other's cache lines
+    private static final int SLOT_STRIDE = 9;
+
+    @Value("${places.heatmap.enabled:true}")
+    private boolean enabled = true;
+
+    // Share of searches recorded, between 0 and 1
+    @Value("${places.heatmap.sample-rate:1.0}")
+    private double sampleRate = 1.0;
+
+    @Value("${places.heatmap.precision:6}")
+    private int precision = 6;
+
+    @Value("${places.heatmap.max-cells:100000}")
+    private int maxCells = 100000;
+
+    private final int mask;
+    private final AtomicLongArray markers;
+    private final AtomicLongArray locations;
+    private final AtomicLong claimed = new AtomicLong();
+    private long drained; // Next sequence to drain; guarded by this
+
+    // Guarded by this
+    private final Map<String, long[]> cells = new HashMap<>(); // cell -> {hits, misses}
+    private long overflow;
+
+    private final LongAdder dropped = new LongAdder();
+
+    @Autowired
+    public SearchHeatmap(@Value("${places.heatmap.buffer-size:65536}") int bufferSize) {
+        int size = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = size - 1;
+        this.markers = new AtomicLongArray(size);
+        this.locations = new AtomicLongArray(size);
+    }
+
+    /**
+     * Record a search; safe to call from any number of request threads
+     *
+     * @param cacheHit Whether it was answered without calling Google
+     */
+    public void record(double latitude, double longitude, boolean cacheHit) {
+        if (!enabled || sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        int slot = (int) (sequence * SLOT_STRIDE & mask);
+        markers.set(slot, WRITING);
+        locations.set(slot, (long) Float.floatToIntBits((float) latitude) << 32
+                | Float.floatToIntBits((float) longitude) & 0xFFFFFFFFL);
+        markers.set(slot, (sequence + 1) << 1 | (cacheHit ? 1 : 0));
+    }
+
+    /**
+     * Move recorded samples into the cell counts. A slot is read like a seqlock: its location is
+     * used only if the marker is the expected one both before and after reading it.
+     */
+    @Scheduled(fixedDelayString = "${places.heatmap.drain-interval-ms:1000}")
+    public synchronized void drain() {
+        long end = claimed.get();
+        if (end - drained > mask + 1) {
+            dropped.add(end - drained - (mask + 1));
+            drained = end - (mask + 1);
+        }
+        while (drained < end) {
+            int slot = (int) (drained * SLOT_STRIDE & mask);
+            long marker = markers.get(slot);
+            if (marker == WRITING || marker >>> 1 < drained + 1) {
+                break; // Claimed but not written yet; read it on the next drain
+            }
+            long location = locations.get(slot);
+            if (marker >>> 1 != drained + 1 || markers.get(slot) != marker) {
+                dropped.increment(); // Overwritten by a later search
+                drained++;
+                continue;
+            }
+            double latitude = Float.intBitsToFloat((int) (location >>> 32));
+            double longitude = Float.intBitsToFloat((int) location);
+            count(GeoHash.encode(latitude, longitude, precision), (marker & 1) == 1);
+            drained++;
+        }
+    }
+
+    private void count(String cell, boolean cacheHit) {
+        long[] counts = cells.get(cell);
+        if (counts == null) {
+            if (cells.size() >= maxCells) {
+                overflow++;
+                return;
+            }
+            counts = new long[2];
+            cells.put(cell, counts);
+        }
+        counts[cacheHit ? 0 : 1]++;
+    }
+
+    /**
+     * The busiest cells, optionally merged into coarser cells
+     *
+     * @param cellPrecision Geohash length of the returned cells, at most the recorded precision
+     * @param limit Maximum number of cells to return
+     * @return Cells by number of searches, with hits, misses and bounds
+     */
+    public synchronized List<Map<String, Object>> getCells(int cellPrecision, int limit) {
+        int length = Math.max(1, Math.min(cellPrecision, precision));
+        Map<String, long[]> merged = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : cells.entrySet()) {
+            long[] counts = merged.computeIfAbsent(entry.getKey().substring(0, length), key -> new long[2]);
+            counts[0] += entry.getValue()[0];
+            counts[1] += entry.getValue()[1];
+        }
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(merged.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue()[0] + b.getValue()[1], a.getValue()[0] + a.getValue()[1]));
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            long hits = entry.getValue()[0];
+            long misses = entry.getValue()[1];
+            double[] bounds = GeoHash.bounds(entry.getKey());
+            Map<String, Object> cell = new LinkedHashMap<>();
+            cell.put("geohash", entry.getKey());
+            cell.put("searches", hits + misses);
+            cell.put("hits", hits);
+            cell.put("misses", misses);
+            cell.put("hitRatio", (double) hits / (hits + misses));
+            cell.put("minLatitude", bounds[0]);
+            cell.put("maxLatitude", bounds[1]);
+            cell.put("minLongitude", bounds[2]);
+            cell.put("maxLongitude", bounds[3]);
+            result.add(cell);
+        }
+        return result;
+    }
+
+    public synchronized void reset() {
+        drain();
+        cells.clear();
+        overflow = 0;
+    }
+
+    /**
+     * Samples recorded, dropped and aggregated for the admin API
+     */
+    public synchronized Map<String, Object> getStats() {
+        long searches = 0;
+        long hits = 0;
+        for (long[] counts : cells.values()) {
+            hits += counts[0];
+            searches += counts[0] + counts[1];
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sampleRate", sampleRate);
+        stats.put("precision", precision);
+        stats.put("recorded", claimed.get());
+        stats.put("pending", claimed.get() - drained);
+        stats.put("dropped", dropped.sum());
+        stats.put("cells", cells.size());
+        stats.put("searches", searches);
+        stats.put("hits", hits);
+        stats.put("overflowSearches", overflow);
+        return stats;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+}
@@ -0,0 +1,111 @@
+package com.localscopelocal.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup timeline for the admin API, from the steps recorded by the BufferingApplicationStartup
+ * installed in LocalScopeLocalApplication: time per startup phase and per bean instantiation.
+ * Beans created lazily after the application became ready are listed as well, flagged as such.
+ */
+@Service
+public class StartupTimelineService {
+
+    private static final String BEAN_INSTANTIATION = "spring.beans.instantiate";
+    private static final String APPLICATION_READY = "spring.boot.application.ready";
+
+    private final ApplicationStartup applicationStartup;
+
+    @Autowired
+    public StartupTimelineService(ConfigurableApplicationContext applicationContext) {
+        this.applicationStartup = applicationContext.getApplicationStartup();
+    }
+
+    /**
+     * @param limit Maximum number of beans to list, slowest first
+     * @return Phases in order with their duration, the slowest bean instantiations, and totals
+     */
+    public Map<String, Object> getTimeline(int limit) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            report.put("available", false);
+            return report;
+        }
+        StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+        Instant start = timeline.getStartTime();
+        Instant ready = null;
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            if (APPLICATION_READY.equals(event.getStartupStep().getName())) {
+                ready = event.getEndTime();
+            }
+        }
+
+        Map<String, long[]> phases = new LinkedHashMap<>(); // name -> {count, total ms}
+        List<StartupTimeline.TimelineEvent> beans = new ArrayList<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            String name = event.getStartupStep().getName();
+            if (BEAN_INSTANTIATION.equals(name)) {
+                beans.add(event);
+                continue;
+            }
+            long[] phase = phases.computeIfAbsent(name, key -> new long[2]);
+            phase[0]++;
+            phase[1] += event.getDuration().toMillis();
+        }
+
+        List<Map<String, Object>> phaseList = new ArrayList<>();
+        for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", phase.getKey());
+            entry.put("count", phase.getValue()[0]);
+            entry.put("durationMillis", phase.getValue()[1]);
+            phaseList.add(entry);
+        }
+
+        // Durations include the beans each one pulled in as dependencies
+        beans.sort(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed());
+        List<Map<String, Object>> beanList = new ArrayList<>();
+        for (StartupTimeline.TimelineEvent event : beans.subList(0, Math.min(limit, beans.size()))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("bean", tag(event.getStartupStep(), "beanName"));
+            entry.put("durationMillis", event.getDuration().toMillis());
+            entry.put("startedAtMillis", Duration.between(start, event.getStartTime()).toMillis());
+            entry.put("afterReady", ready != null && event.getStartTime().isAfter(ready));
+            beanList.add(entry);
+        }
+
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        report.put("available", true);
+        report.put("startedAt", start.toEpochMilli());
+        report.put("jvmToStartMillis", start.toEpochMilli() - jvmStart);
+        report.put("readyMillis", ready != null ? Duration.between(start, ready).toMillis() : null);
+        report.put("jvmToReadyMillis", ready != null ? ready.toEpochMilli() - jvmStart : null);
+        report.put("beansInstantiated", beans.size());
+        report.put("phases", phaseList);
+        report.put("slowestBeans", beanList);
+        return report;
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (key.equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+}
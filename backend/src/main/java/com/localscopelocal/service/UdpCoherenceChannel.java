@@ -0,0 +1,140 @@
+package com.localscopelocal.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Channel over UDP datagrams: each event is one datagram sent to every configured peer, and to
+ * this node itself. Suited to nodes on one host or a private network; datagrams can be lost,
+ * which the in-memory result cache's TTL tolerates. Datagrams are only accepted from the
+ * configured peers and this node, by source address and port, since each node sends from the
+ * socket it receives on. Subscribers run on a separate thread from the receiving one, so a slow
+ * subscriber does not leave datagrams to overflow the socket buffer.
+ */
+public class UdpCoherenceChannel implements CacheCoherenceChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(UdpCoherenceChannel.class);
+
+    private static final int MAX_DATAGRAM_BYTES = 1400;
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> targets = new ArrayList<>();
+    private final Set<SocketAddress> senders = new HashSet<>();
+    private final List<Consumer<CacheEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "places-coherence-delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param bindAddress Address to receive on, e.g. 127.0.0.1
+     * @param port Port to receive on
+     * @param peers Other nodes as host:port, comma-separated
+     */
+    public UdpCoherenceChannel(String bindAddress, int port, String peers) {
+        try {
+            socket = new DatagramSocket(new InetSocketAddress(bindAddress, port));
+        } catch (SocketException e) {
+            throw new UncheckedIOException("Could not bind cache coherence socket to " + bindAddress + ":" + port, e);
+        }
+        targets.add(new InetSocketAddress(bindAddress, socket.getLocalPort()));
+        for (String peer : peers.split(",")) {
+            String trimmed = peer.trim();
+            if (!trimmed.isEmpty()) {
+                int colon = trimmed.lastIndexOf(':');
+                targets.add(new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+            }
+        }
+        senders.addAll(targets);
+        if (socket.getLocalAddress().isAnyLocalAddress()) {
+            // Bound to every interface, this node's datagrams to itself arrive from loopback
+            senders.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort()));
+        }
+        Thread receiver = new Thread(this::receive, "places-coherence-udp");
+        receiver.setDaemon(true);
+        receiver.start();
+        log.info("Cache coherence over UDP on {}:{}, peers {}", bindAddress, socket.getLocalPort(), peers);
+    }
+
+    @Override
+    public void publish(CacheEvent event) {
+        byte[] bytes = event.encode();
+        if (bytes.length > MAX_DATAGRAM_BYTES) {
+            log.warn("Cache event too large to send: {}", event);
+            return;
+        }
+        for (InetSocketAddress target : targets) {
+            try {
+                socket.send(new DatagramPacket(bytes, bytes.length, target));
+            } catch (IOException e) {
+                log.debug("Could not send cache event to {}: {}", target, e.toString());
+            }
+        }
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[MAX_DATAGRAM_BYTES];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Cache coherence receive failed", e);
+                }
+                continue;
+            }
+            if (!senders.contains(packet.getSocketAddress())) {
+                log.debug("Ignoring cache event from {}, which is not a configured peer", packet.getSocketAddress());
+                continue;
+            }
+            CacheEvent event;
+            try {
+                event = CacheEvent.decode(packet.getData(), packet.getLength());
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed cache event from {}", packet.getSocketAddress());
+                continue;
+            }
+            delivery.execute(() -> deliver(event));
+        }
+    }
+
+    private void deliver(CacheEvent event) {
+        for (Consumer<CacheEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Cache event subscriber failed on {}", event, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        delivery.shutdown();
+    }
+}
@@ -0,0 +1,123 @@
+package com.localscopelocal.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-key exponential backoff after Google Places API failures.
+ *
+ * A failing key may not call Google again until its backoff has passed; every further
+ * failure doubles the delay up to a cap, and a success clears it. Requests for the key in
+ * the meantime fail fast instead of each waiting on a broken upstream.
+ */
+@Component
+public class UpstreamErrorBackoff {
+
+    private final ConcurrentMap<String, State> states = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Value("${places.cache.error-backoff.initial-seconds:5}")
+    private long initialSeconds = 5;
+
+    @Value("${places.cache.error-backoff.max-seconds:300}")
+    private long maxSeconds = 300;
+
+    @Value("${places.cache.error-backoff.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    /**
+     * Check whether a key is backing off; counts the request as rejected if so
+     *
+     * @return Milliseconds until the key may call Google again, 0 if it may now
+     */
+    public long remainingMillis(String key) {
+        State state = states.get(key);
+        if (state == null) {
+            return 0;
+        }
+        long remaining = state.retryAtMillis - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return 0;
+        }
+        rejected.increment();
+        return remaining;
+    }
+
+    /**
+     * Record a failed upstream call for the key
+     *
+     * @return The backoff now in effect, in milliseconds
+     */
+    public long recordFailure(String key) {
+        failures.increment();
+        long now = System.currentTimeMillis();
+        if (states.size() >= maxEntries && !states.containsKey(key)) {
+            purgeExpired();
+        }
+        State state = states.compute(key, (k, previous) -> {
+            int attempts = previous == null ? 1 : Math.min(previous.attempts + 1, 30);
+            long delaySeconds = Math.min(initialSeconds << (attempts - 1), maxSeconds);
+            return new State(attempts, now + delaySeconds * 1000);
+        });
+        return state.retryAtMillis - now;
+    }
+
+    public void recordSuccess(String key) {
+        states.remove(key);
+    }
+
+    /**
+     * Drop keys whose backoff ran out long enough ago that the next failure starts over
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - maxSeconds * 1000;
+        states.values().removeIf(state -> state.retryAtMillis < cutoff);
+    }
+
+    /**
+     * @return Number of keys currently backing off
+     */
+    public int getActiveKeys() {
+        long now = System.currentTimeMillis();
+        int active = 0;
+        for (State state : states.values()) {
+            if (state.retryAtMillis > now) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getInitialSeconds() {
+        return initialSeconds;
+    }
+
+    public long getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    private static final class State {
+        private final int attempts;
+        private final long retryAtMillis;
+
+        State(int attempts, long retryAtMillis) {
+            this.attempts = attempts;
+            this.retryAtMillis = retryAtMillis;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.localscopelocal.service;
+
+/**
+ * Cap on the extra Google calls made by retries and hedged requests.
+ *
+ * Over a sliding window of {@value #WINDOW_SECONDS} seconds, extra calls may not exceed a fixed
+ * ratio of the searches sent upstream, plus a small allowance per second so a quiet node can still
+ * retry. During an upstream incident every search fails and retries quickly run out of budget, so
+ * the load on Google grows by at most that ratio instead of by the number of attempts.
+ */
+class UpstreamRetryBudget {
+
+    static final int WINDOW_SECONDS = 10;
+
+    private final double ratio;
+    private final int minPerSecond;
+
+    // Guarded by this: per-second buckets of the window, indexed by epoch second
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final int[] requests = new int[WINDOW_SECONDS];
+    private final int[] extras = new int[WINDOW_SECONDS];
+
+    UpstreamRetryBudget(double ratio, int minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+    }
+
+    /**
+     * Record a search sent upstream, which adds to the budget
+     */
+    synchronized void recordRequest() {
+        requests[bucket(System.currentTimeMillis() / 1000)]++;
+    }
+
+    /**
+     * Take one extra call from the budget
+     *
+     * @return Whether the retry or hedge may be sent
+     */
+    synchronized boolean tryAcquire() {
+        long second = System.currentTimeMillis() / 1000;
+        int current = bucket(second);
+        long requestsInWindow = 0;
+        long extrasInWindow = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (second - bucketSeconds[i] < WINDOW_SECONDS) {
+                requestsInWindow += requests[i];
+                extrasInWindow += extras[i];
+            }
+        }
+        if (extrasInWindow >= (long) (requestsInWindow * ratio) + (long) minPerSecond * WINDOW_SECONDS) {
+            return false;
+        }
+        extras[current]++;
+        return true;
+    }
+
+    /**
+     * The bucket of the given second, cleared first if it still holds an older second
+     */
+    private int bucket(long second) {
+        int index = (int) (second % WINDOW_SECONDS);
+        if (bucketSeconds[index] != second) {
+            bucketSeconds[index] = second;
+            requests[index] = 0;
+            extras[index] = 0;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,22 @@
+package com.localscopelocal.service;
+
+/**
+ * Thrown when a search cannot be answered from cache and Google is failing for it,
+ * either just now or recently enough that the key is backing off
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public UpstreamUnavailableException(String message, long retryAfterMillis, Throwable cause) {
+        super(message, cause);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return How long until the key may call Google again
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}